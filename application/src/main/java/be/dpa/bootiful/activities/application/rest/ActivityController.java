@@ -3,9 +3,12 @@ package be.dpa.bootiful.activities.application.rest;
 import be.dpa.bootiful.activities.domain.api.Activity;
 import be.dpa.bootiful.activities.domain.api.ActivityRequest;
 import be.dpa.bootiful.activities.domain.api.ActivityService;
+import be.dpa.bootiful.activities.domain.api.ActivityStatistics;
 import be.dpa.bootiful.activities.domain.api.Participant;
 import be.dpa.bootiful.activities.domain.api.ParticipantRequest;
+import be.dpa.bootiful.activities.domain.api.TaggedActivities;
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
 import be.dpa.bootiful.activities.domain.api.exception.InvalidParticipantException;
 import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import be.dpa.bootiful.activities.application.rest.validation.SearchConstraint;
@@ -18,11 +21,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.data.web.SlicedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
@@ -33,11 +43,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
@@ -64,29 +78,133 @@ class ActivityController {
 
     private final PagedResourcesAssembler<Participant> participantPagedResourcesAssembler;
 
+    private final SlicedResourcesAssembler<Activity> activitySlicedResourcesAssembler;
+
+    private final SlicedResourcesAssembler<Participant> participantSlicedResourcesAssembler;
+
+    private final ActivityCursorCodec activityCursorCodec = new ActivityCursorCodec();
+
+    private final ActivityETags activityETags = new ActivityETags();
+
+    private final ActivityNdjsonWriter activityNdjsonWriter = new ActivityNdjsonWriter();
+
+    private ResponseEntity<CollectionModel<Activity>> scrollActivities(Optional<String> search, String cursor,
+                                                                       Integer size) {
+        Optional<ScrollPosition> position = activityCursorCodec.decode(cursor);
+        if (!position.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Window<Activity> activities = activityService.getActivities(search, position.get(), size);
+        List<Activity> content = activities.getContent();
+        if (CollectionUtils.isEmpty(content)) {
+            return ResponseEntity.noContent().build();
+        }
+        relationService.addActivityLinks(content);
+        CollectionModel<Activity> activityModel = CollectionModel.of(content);
+        activityModel.add(linkTo(methodOn(ActivityController.class)
+                .getActivities(search.orElse(null), null, size, null, cursor, null)).withSelfRel().expand());
+        if (activities.hasNext()) {
+            String nextCursor = activityCursorCodec.encode(activities.positionAt(content.size() - 1));
+            activityModel.add(linkTo(methodOn(ActivityController.class)
+                    .getActivities(search.orElse(null), null, size, null, nextCursor, null))
+                    .withRel(IanaLinkRelations.NEXT).expand());
+        }
+        return ResponseEntity.ok(activityModel);
+    }
+
+    private CollectionModel<Activity> toActivityModel(Slice<Activity> activities) {
+        if (activities instanceof Page<Activity> activityPage) {
+            return activityPagedResourcesAssembler.toModel(activityPage, a -> a);
+        }
+        // Without a total a slice only links to the previous and the next page
+        return activitySlicedResourcesAssembler.toModel(activities, a -> a);
+    }
+
     @Operation(summary = "Gets a paged model containing activities")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "A paged model of activities", content =
+        @ApiResponse(responseCode = "200", description = "A paged or sliced model of activities", content =
             {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                 schema = @Schema(implementation = PagedModel.class))}),
         @ApiResponse(responseCode = "204",
-                description = "Sadly there are no activities yet")
+                description = "Sadly there are no activities yet"),
+        @ApiResponse(responseCode = "304", description = "The page of activities has not been modified"),
+        @ApiResponse(responseCode = "400", description = "Invalid search filter or cursor")
     })
     @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
-    public ResponseEntity<PagedModel<Activity>> getActivities(
+    public ResponseEntity<CollectionModel<Activity>> getActivities(
             @Valid @SearchConstraint @Parameter(description = "An optional search string (FIQL), f.e. type==busywork")
             @RequestParam(defaultValue = "") String search,
             @Parameter(description = "The page index") @RequestParam(defaultValue = "0") Integer page,
-            @Parameter(description = "The page size") @RequestParam(defaultValue = "5") Integer size)
-            throws ActivityNotFoundException, ParticipantNotFoundException {
+            @Parameter(description = "The page size") @RequestParam(defaultValue = "5") Integer size,
+            @Parameter(description = "Whether to count all activities, without a count the page does not know"
+                + " the totals and only links to the previous and the next page")
+            @RequestParam(defaultValue = "true") Boolean count,
+            @Parameter(description = "An optional cursor to scroll through the activities instead of paging,"
+                + " an empty cursor starts at the first activity, the next one is linked by the response")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "The entity tag of the page of activities the client already has")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Optional<String> optSearch = StringUtils.isEmpty(search) ? Optional.empty() : Optional.of(search);
-        Page<Activity> activities = activityService.getActivities(optSearch, page, size);
+        if (cursor != null) {
+            return scrollActivities(optSearch, cursor, size);
+        }
+        // The service only maps the activities in case the client does not have the page with the same tag
+        TaggedActivities taggedActivities = activityService.getTaggedActivities(optSearch, page, size,
+                !Boolean.FALSE.equals(count), tag -> activityETags.matches(ifNoneMatch, activityETags.of(tag)));
+        String etag = activityETags.of(taggedActivities.tag());
+        if (taggedActivities.activities().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        Slice<Activity> activities = taggedActivities.activities().get();
         List<Activity> content = activities.getContent();
         if (CollectionUtils.isEmpty(content)) {
             return ResponseEntity.noContent().build();
         }
         relationService.addActivityLinks(content);
-        return ResponseEntity.ok(activityPagedResourcesAssembler.toModel(activities, a -> a));
+        return ResponseEntity.ok().eTag(etag).body(toActivityModel(activities));
+    }
+
+    @Operation(summary = "Exports all activities as newline delimited JSON, one activity per line")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "The stream of activities", content =
+            {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                schema = @Schema(implementation = Activity.class))}),
+        @ApiResponse(responseCode = "400", description = "Invalid search filter")
+    })
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportActivities(
+            @Valid @SearchConstraint @Parameter(description = "An optional search string (FIQL), f.e. type==busywork")
+            @RequestParam(defaultValue = "") String search) {
+        Optional<String> optSearch = StringUtils.isEmpty(search) ? Optional.empty() : Optional.of(search);
+        // Written once the request thread is released, the activities are read while they are written
+        StreamingResponseBody body = outputStream -> {
+            try {
+                activityService.exportActivities(optSearch, activity -> {
+                    try {
+                        activityNdjsonWriter.write(activity, outputStream);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Gets the activities and participants per type and the distribution of their participants")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "The activity statistics", content =
+            {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                schema = @Schema(implementation = ActivityStatistics.class))})
+    })
+    @GetMapping(value = "/statistics", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ActivityStatistics> getActivityStatistics() {
+        // Read from counters kept up to date by every write, no query is needed
+        ActivityStatistics activityStatistics = activityService.getActivityStatistics();
+        activityStatistics.add(linkTo(methodOn(ActivityController.class).getActivityStatistics()).withSelfRel());
+        return ResponseEntity.ok(activityStatistics);
     }
 
     @Operation(summary = "Gets an activity by its alternate key")
@@ -94,30 +212,51 @@ class ActivityController {
         @ApiResponse(responseCode = "200", description = "Found the activity", content =
             {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                 schema = @Schema(implementation = Activity.class))}),
+        @ApiResponse(responseCode = "304", description = "The activity has not been modified"),
         @ApiResponse(responseCode = "404", description = "Activity not found")})
     @GetMapping(value = "/{activityAk}", produces = {MediaTypes.HAL_FORMS_JSON_VALUE,
         MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<Activity> getActivityBy(@Parameter(description = "The alternate key of the activity")
-        @PathVariable String activityAk) throws ActivityNotFoundException, ParticipantNotFoundException {
+        @PathVariable String activityAk,
+        @Parameter(description = "The entity tag of the activity the client already has")
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws ActivityNotFoundException {
+        if (ifNoneMatch != null) {
+            // Only the version is needed to tell the client its activity is still current
+            String etag = activityETags.of(activityService.getActivityVersion(activityAk));
+            if (activityETags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
         Activity activity = activityService.getActivityBy(activityAk);
         relationService.addActivityLinks(activity);
-        return ResponseEntity.ok(activity);
+        return ResponseEntity.ok().eTag(activityETags.of(activity.getVersion())).body(activity);
     }
 
     @Operation(summary = "Gets the participants of a specific activity, f.e. a public facebook party")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "A paged model of activity participants", content =
+        @ApiResponse(responseCode = "200", description = "A paged or sliced model of activity participants", content =
             {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                 schema = @Schema(implementation = PagedModel.class))}),
         @ApiResponse(responseCode = "204", description = "Sadly there are participants for the given activity")
     })
     @GetMapping(value = "/{activityAk}/participants",
             produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
-    public ResponseEntity<PagedModel<Participant>> getActivityParticipantsBy(
+    public ResponseEntity<CollectionModel<Participant>> getActivityParticipantsBy(
             @PathVariable String activityAk,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "5") Integer size)
-            throws ActivityNotFoundException, ParticipantNotFoundException {
+            @RequestParam(defaultValue = "5") Integer size,
+            @Parameter(description = "Whether to count all participants, without a count the page does not know"
+                + " the totals and only links to the previous and the next page")
+            @RequestParam(defaultValue = "true") Boolean count) {
+        if (Boolean.FALSE.equals(count)) {
+            Slice<Participant> participants = activityService.getActivityParticipantSlice(activityAk, page, size);
+            if (!participants.hasContent()) {
+                return ResponseEntity.noContent().build();
+            }
+            relationService.addParticipantLinks(activityAk, participants.getContent());
+            return ResponseEntity.ok(participantSlicedResourcesAssembler.toModel(participants, p -> p));
+        }
         Page<Participant> participants = activityService.getActivityParticipants(activityAk, page, size);
         List<Participant> content = participants.getContent();
         if (CollectionUtils.isEmpty(content)) {
@@ -155,7 +294,7 @@ class ActivityController {
     public ResponseEntity<?> newParticipant(@PathVariable String activityAk,
                                             @Parameter(description = "The participant to create")
                                             @Valid @RequestBody ParticipantRequest participantRequest)
-            throws ActivityNotFoundException, InvalidParticipantException, ParticipantNotFoundException {
+            throws ActivityNotFoundException, InvalidParticipantException {
         Participant participant = activityService.newParticipant(activityAk, participantRequest);
         relationService.addParticipantLinks(activityAk, participant);
         Optional<URI> participantUri = relationService.convertToUri(
@@ -176,8 +315,7 @@ class ActivityController {
         @ApiResponse(responseCode = "400", description = "Invalid activity request")})
     @PostMapping(produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<?> newActivity(@Parameter(description = "The activity to create")
-        @Valid @RequestBody ActivityRequest activityRequest)
-            throws ActivityNotFoundException, ParticipantNotFoundException {
+        @Valid @RequestBody ActivityRequest activityRequest) {
         Activity activity = activityService.newActivity(activityRequest);
         relationService.addActivityLinks(activity);
         Optional<URI> activityUri = relationService.convertToUri(
@@ -190,21 +328,53 @@ class ActivityController {
                         activity.getAlternateKey()));
     }
 
+    private Optional<Long> toExpectedVersion(String activityAk, String ifMatch) {
+        if (!activityETags.isWildcard(ifMatch)) {
+            return activityETags.toVersion(ifMatch);
+        }
+        // The wildcard matches whatever version the activity has as long as it exists
+        try {
+            return Optional.of(activityService.getActivityVersion(activityAk));
+        } catch (ActivityNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Activity doUpdateActivity(String activityAk, ActivityRequest activityRequest, String ifMatch)
+            throws ActivityVersionMismatchException {
+        if (ifMatch == null) {
+            return activityService.updateActivity(activityAk, activityRequest);
+        }
+        Optional<Long> expectedVersion = toExpectedVersion(activityAk, ifMatch);
+        if (!expectedVersion.isPresent()) {
+            throw new ActivityVersionMismatchException(
+                    String.format("The activity with the alternate key %s does not match %s", activityAk, ifMatch));
+        }
+        return activityService.updateActivity(activityAk, activityRequest, expectedVersion.get());
+    }
+
     @Operation(summary = "Updates an activity")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "204", description = "Updated the activity"),
-        @ApiResponse(responseCode = "400", description = "Invalid activity request")})
+        @ApiResponse(responseCode = "400", description = "Invalid activity request"),
+        @ApiResponse(responseCode = "412", description = "The activity has been changed in the meantime")})
     @PutMapping(value = "/{activityAk}")
     public ResponseEntity<?> updateActivity(@Parameter(description = "The activity data to update")
                                             @Valid @RequestBody ActivityRequest activityRequest,
                                             @Parameter(description = "The alternate key of the activity to update")
-                                            @PathVariable String activityAk)
-            throws ActivityNotFoundException, ParticipantNotFoundException {
-        activityService.updateActivity(activityAk, activityRequest);
-        Link activityLink = linkTo(methodOn(ActivityController.class).getActivityBy(activityAk)).withSelfRel();
+                                            @PathVariable String activityAk,
+                                            @Parameter(description = "The entity tag of the activity to update,"
+                                                + " only updates the activity if it has not been changed since")
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                            String ifMatch)
+            throws ActivityNotFoundException, ActivityVersionMismatchException {
+        Activity activity = doUpdateActivity(activityAk, activityRequest, ifMatch);
+        Link activityLink = linkTo(methodOn(ActivityController.class).getActivityBy(activityAk, null))
+                .withSelfRel();
         Optional<URI> activityUri = relationService.convertToUri(activityLink);
         if (activityUri.isPresent()) {
-            return ResponseEntity.noContent().location(activityUri.get()).build();
+            return ResponseEntity.noContent().location(activityUri.get())
+                    .eTag(activityETags.of(activity.getVersion())).build();
         }
         return ResponseEntity.badRequest().body(
                 String.format("Failed to create URI to updated activity with alternate key %s", activityAk));
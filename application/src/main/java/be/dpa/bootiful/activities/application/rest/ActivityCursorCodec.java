@@ -0,0 +1,74 @@
+package be.dpa.bootiful.activities.application.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Converts the keyset scroll positions of activities to opaque cursors and back.
+ *
+ * @author denis
+ */
+@Slf4j
+class ActivityCursorCodec {
+
+    private static final String KEY_TYPE = "type";
+
+    private static final String KEY_ACTION = "action";
+
+    private static final String KEY_ID = "id";
+
+    private static final List<String> KEYS = Arrays.asList(KEY_TYPE, KEY_ACTION, KEY_ID);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Encodes the passed scroll position to a cursor.
+     *
+     * @param scrollPosition a keyset scroll position of an activity
+     * @return the cursor
+     */
+    public String encode(ScrollPosition scrollPosition) {
+        Map<String, Object> keys = ((KeysetScrollPosition) scrollPosition).getKeys();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(KEYS.stream().map(keys::get).toList());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the passed cursor to a scroll position, an empty cursor starts at the first activity.
+     *
+     * @param cursor the cursor
+     * @return the scroll position or an empty optional for an invalid cursor
+     */
+    public Optional<ScrollPosition> decode(String cursor) {
+        if (StringUtils.isEmpty(cursor)) {
+            return Optional.of(ScrollPosition.keyset());
+        }
+        try {
+            List<?> values = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), List.class);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(KEY_TYPE, (String) values.get(0));
+            keys.put(KEY_ACTION, (String) values.get(1));
+            keys.put(KEY_ID, ((Number) values.get(2)).longValue());
+            return Optional.of(ScrollPosition.forward(keys));
+        } catch (IOException | RuntimeException e) {
+            log.info("Failed to decode the cursor {}", cursor);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package be.dpa.bootiful.activities.application.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the entity tags of activities from their versions and checks the conditional request headers.
+ *
+ * @author denis
+ */
+class ActivityETags {
+
+    private static final String WILDCARD = "*";
+
+    private static final Pattern ENTITY_TAG = Pattern.compile("\\G\\s*,?\\s*(?:(W/)?\"([^\"]*)\"|(\\*))");
+
+    /**
+     * An entity tag of a conditional request header, without its quotes.
+     */
+    private record EntityTag(String tag, boolean weak) {
+
+        boolean isWildcard() {
+            return WILDCARD.equals(tag) && !weak;
+        }
+    }
+
+    private static List<EntityTag> parse(String header) {
+        List<EntityTag> etags = new ArrayList<>();
+        if (header == null) {
+            return etags;
+        }
+        Matcher matcher = ENTITY_TAG.matcher(header);
+        while (matcher.find()) {
+            etags.add(matcher.group(3) != null
+                    ? new EntityTag(WILDCARD, false) : new EntityTag(matcher.group(2), matcher.group(1) != null));
+        }
+        return etags;
+    }
+
+    /**
+     * Gets the strong entity tag of an activity with the passed version.
+     *
+     * @param version the version of the activity
+     * @return the quoted entity tag
+     */
+    public String of(long version) {
+        return of(String.valueOf(version));
+    }
+
+    /**
+     * Gets the strong entity tag of the passed tag, f.e. the one of a page of activities.
+     *
+     * @param tag the tag without quotes
+     * @return the quoted entity tag
+     */
+    public String of(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches the passed entity tag, using the weak comparison.
+     *
+     * @param ifNoneMatch the If-None-Match header, may be null
+     * @param etag        the current quoted entity tag
+     * @return true in case the client already has the current representation
+     */
+    public boolean matches(String ifNoneMatch, String etag) {
+        // The weak comparison ignores the weakness of both tags, the current one is always strong
+        String current = parse(etag).stream().findFirst().map(EntityTag::tag).orElse(etag);
+        return parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.tag().equals(current));
+    }
+
+    /**
+     * Checks whether an If-Match header matches any current version.
+     *
+     * @param ifMatch the If-Match header
+     * @return true for the wildcard
+     */
+    public boolean isWildcard(String ifMatch) {
+        return parse(ifMatch).stream().anyMatch(EntityTag::isWildcard);
+    }
+
+    /**
+     * Gets the version an If-Match header expects, only a single strong entity tag of an activity is supported.
+     *
+     * @param ifMatch the If-Match header
+     * @return the expected version or an empty optional in case the header does not name a single version
+     */
+    public Optional<Long> toVersion(String ifMatch) {
+        List<EntityTag> etags = parse(ifMatch);
+        if (etags.size() != 1 || etags.get(0).weak()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(etags.get(0).tag()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package be.dpa.bootiful.activities.application.rest;
+
+import be.dpa.bootiful.activities.domain.api.Activity;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes activities as newline delimited JSON, one activity per line and without links.
+ *
+ * @author denis
+ */
+class ActivityNdjsonWriter {
+
+    private static final int LINE_SEPARATOR = '\n';
+
+    private final ObjectWriter objectWriter = new ObjectMapper()
+            .addMixIn(RepresentationModel.class, WithoutLinks.class)
+            .writerFor(Activity.class);
+
+    @JsonIgnoreProperties("links")
+    private abstract static class WithoutLinks {
+    }
+
+    /**
+     * Writes the passed activity as a line, the stream is neither flushed nor closed.
+     *
+     * @param activity     the activity
+     * @param outputStream the stream to write to
+     * @throws IOException in case writing to the stream fails
+     */
+    public void write(Activity activity, OutputStream outputStream) throws IOException {
+        outputStream.write(objectWriter.writeValueAsBytes(activity));
+        outputStream.write(LINE_SEPARATOR);
+    }
+}
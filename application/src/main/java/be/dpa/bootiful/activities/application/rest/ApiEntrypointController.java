@@ -1,8 +1,6 @@
 package be.dpa.bootiful.activities.application.rest;
 
 import be.dpa.bootiful.activities.domain.api.ApiEntrypoint;
-import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
-import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.ResponseEntity;
@@ -27,14 +25,12 @@ class ApiEntrypointController {
      * Gets the API entry point to access the bootiful activities.
      *
      * @return the root response
-     * @throws ActivityNotFoundException in case an activity could not be found
-     * @throws ParticipantNotFoundException in case a participant could not be found
      */
     @GetMapping(produces = MediaTypes.HAL_JSON_VALUE)
-    public ResponseEntity<ApiEntrypoint> getRoot() throws ActivityNotFoundException, ParticipantNotFoundException {
+    public ResponseEntity<ApiEntrypoint> getRoot() {
         ApiEntrypoint apiEntryPoint = new ApiEntrypoint();
-        Link activitiesLink = linkTo(methodOn(ActivityController.class).getActivities(null, null, null))
-                .withRel(RELATION_ACTIVITIES).expand();
+        Link activitiesLink = linkTo(methodOn(ActivityController.class)
+                .getActivities(null, null, null, null, null, null)).withRel(RELATION_ACTIVITIES).expand();
         apiEntryPoint.add(activitiesLink);
         return ResponseEntity.ok(apiEntryPoint);
     }
@@ -2,7 +2,10 @@ package be.dpa.bootiful.activities.application.rest;
 
 
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
 import be.dpa.bootiful.activities.domain.api.exception.InvalidParticipantException;
+import be.dpa.bootiful.activities.domain.spi.exception.SearchTimeoutException;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpStatus;
@@ -22,6 +25,11 @@ import jakarta.validation.ConstraintViolationException;
 @Slf4j
 public class CustomResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
+    /**
+     * Counts the searches cancelled because they took too long.
+     */
+    public static final String SEARCH_TIMEOUT_COUNTER = "activity.search.timeouts";
+
     private ResponseEntity<String> handleExceptionInternal(String message, HttpStatus status) {
         if (StringUtils.isNotEmpty(message)) {
             log.info(message);
@@ -43,4 +51,15 @@ public class CustomResponseEntityExceptionHandler extends ResponseEntityExceptio
     public ResponseEntity<String> handleActivityNotFoundException(ActivityNotFoundException e) {
         return handleExceptionInternal(e.getMessage(), HttpStatus.NOT_FOUND);
     }
+
+    @ExceptionHandler(ActivityVersionMismatchException.class)
+    public ResponseEntity<String> handleActivityVersionMismatchException(ActivityVersionMismatchException e) {
+        return handleExceptionInternal(e.getMessage(), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(SearchTimeoutException.class)
+    public ResponseEntity<String> handleSearchTimeoutException(SearchTimeoutException e) {
+        Metrics.counter(SEARCH_TIMEOUT_COUNTER).increment();
+        return handleExceptionInternal(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -2,24 +2,26 @@ package be.dpa.bootiful.activities.application.rest;
 
 
 import be.dpa.bootiful.activities.domain.api.Activity;
+import be.dpa.bootiful.activities.domain.api.ActivityRequest;
 import be.dpa.bootiful.activities.domain.api.Participant;
-import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
-import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.Affordances;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
 import static be.dpa.bootiful.activities.application.rest.util.RelationConstants.RELATION_ACTIVITIES;
 import static be.dpa.bootiful.activities.application.rest.util.RelationConstants.RELATION_ACTIVITY;
 import static be.dpa.bootiful.activities.application.rest.util.RelationConstants.RELATION_PARTICIPANTS;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.afford;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 /**
  * Activity relation service.
@@ -30,6 +32,8 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Service
 class RelationService {
 
+    private static final String UPDATE_ACTIVITY = "updateActivity";
+
     /**
      * Converts the passed link to a URI.
      *
@@ -46,45 +50,87 @@ class RelationService {
         }
     }
 
-    public void addActivityLinks(Activity activity) throws ActivityNotFoundException, ParticipantNotFoundException {
-        Link selfLink = linkTo(methodOn(ActivityController.class)
-            .getActivityBy(activity.getAlternateKey())).withSelfRel();
-        selfLink = selfLink.andAffordance(afford(methodOn(ActivityController.class)
-            .updateActivity(null, activity.getAlternateKey())));
-
-
-        Link participantsLink = linkTo(methodOn(ActivityController.class)
-            .getActivityParticipantsBy(activity.getAlternateKey(), null, null)).withRel(RELATION_PARTICIPANTS).expand();
-        Link activitiesLink = linkTo(methodOn(ActivityController.class)
-            .getActivities(null, null, null)).withRel(RELATION_ACTIVITIES).expand();
+    private void addActivityLinks(LinkTemplates linkTemplates, Activity activity) {
+        String activityHref = linkTemplates.activity(activity.getAlternateKey());
+        Link selfLink = Affordances.of(Link.of(activityHref, IanaLinkRelations.SELF))
+            .afford(HttpMethod.PUT)
+            .withInput(ActivityRequest.class)
+            .withName(UPDATE_ACTIVITY)
+            .toLink();
+        Link participantsLink = Link.of(linkTemplates.participants(activityHref), RELATION_PARTICIPANTS);
+        Link activitiesLink = Link.of(linkTemplates.activities(), RELATION_ACTIVITIES);
         activity.add(selfLink, participantsLink, activitiesLink);
     }
 
-    public void addActivityLinks(List<Activity> activities)
-            throws ActivityNotFoundException, ParticipantNotFoundException {
+    public void addActivityLinks(Activity activity) {
+        addActivityLinks(LinkTemplates.ofCurrentRequest(), activity);
+    }
+
+    public void addActivityLinks(List<Activity> activities) {
+        LinkTemplates linkTemplates = LinkTemplates.ofCurrentRequest();
         for (Activity activity : activities) {
-            addActivityLinks(activity);
+            addActivityLinks(linkTemplates, activity);
         }
     }
 
-    public void addParticipantLinks(String activityAk, Participant participant)
-        throws ActivityNotFoundException, ParticipantNotFoundException {
-        Link selfLink = linkTo(methodOn(ActivityController.class)
-                .getActivityParticipantBy(activityAk, participant.getAlternateKey())).withSelfRel();
-        Link participantsLink = linkTo(methodOn(ActivityController.class)
-                .getActivityParticipantsBy(activityAk, null, null)).withRel(RELATION_PARTICIPANTS).expand();
-        Link activityLink = linkTo(methodOn(ActivityController.class)
-                .getActivityBy(activityAk)).withRel(RELATION_ACTIVITY);
-        Link activitiesLink = linkTo(methodOn(ActivityController.class)
-                .getActivities(null, null, null)).withRel(RELATION_ACTIVITIES).expand();
+    private void addParticipantLinks(LinkTemplates linkTemplates, String activityAk, Participant participant) {
+        String activityHref = linkTemplates.activity(activityAk);
+        String participantsHref = linkTemplates.participants(activityHref);
+        Link selfLink = Link.of(linkTemplates.participant(participantsHref, participant.getAlternateKey()),
+                IanaLinkRelations.SELF);
+        Link participantsLink = Link.of(participantsHref, RELATION_PARTICIPANTS);
+        Link activityLink = Link.of(activityHref, RELATION_ACTIVITY);
+        Link activitiesLink = Link.of(linkTemplates.activities(), RELATION_ACTIVITIES);
 
         participant.add(selfLink, participantsLink, activityLink, activitiesLink);
     }
 
-    public void addParticipantLinks(String activityAk, List<Participant> participants)
-        throws ActivityNotFoundException, ParticipantNotFoundException {
+    public void addParticipantLinks(String activityAk, Participant participant) {
+        addParticipantLinks(LinkTemplates.ofCurrentRequest(), activityAk, participant);
+    }
+
+    public void addParticipantLinks(String activityAk, List<Participant> participants) {
+        LinkTemplates linkTemplates = LinkTemplates.ofCurrentRequest();
         for (Participant participant : participants) {
-            addParticipantLinks(activityAk, participant);
+            addParticipantLinks(linkTemplates, activityAk, participant);
+        }
+    }
+
+    /**
+     * The URI templates of the activity resources, resolved once against the base URI of the current request.
+     * The alternate keys are encoded the way Spring HATEOAS encodes path variables, so the links equal the ones
+     * built by invoking the controller methods on a proxy.
+     */
+    private static final class LinkTemplates {
+
+        private final String activitiesHref;
+
+        private LinkTemplates(String activitiesHref) {
+            this.activitiesHref = activitiesHref;
+        }
+
+        static LinkTemplates ofCurrentRequest() {
+            return new LinkTemplates(linkTo(ActivityController.class).toUriComponentsBuilder().toUriString());
+        }
+
+        String activities() {
+            return activitiesHref;
+        }
+
+        String activity(String activityAk) {
+            return activitiesHref + "/" + encode(activityAk);
+        }
+
+        String participants(String activityHref) {
+            return activityHref + "/participants";
+        }
+
+        String participant(String participantsHref, String participantAk) {
+            return participantsHref + "/" + encode(participantAk);
+        }
+
+        private static String encode(String alternateKey) {
+            return UriUtils.encodePathSegment(alternateKey, StandardCharsets.UTF_8);
         }
     }
 }
@@ -1,26 +1,130 @@
 package be.dpa.bootiful.activities.application.rest.validation;
 
-import cz.jirutka.rsql.parser.RSQLParser;
+import be.dpa.bootiful.activities.domain.search.SearchPlanCache;
+import cz.jirutka.rsql.parser.ast.ComparisonNode;
+import cz.jirutka.rsql.parser.ast.LogicalNode;
 import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.RSQLOperators;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Makes sure that the search filters contains only allowed fields.
+ * Makes sure that the search filters contains only allowed fields and stay within the configured complexity.
  *
  * @author denis
  */
 @Slf4j
+@RequiredArgsConstructor
 public class SearchValidator implements ConstraintValidator<SearchConstraint, String> {
 
-    private static final Set<String> ALLOWED_FILTER_FIELDS = Set.of("action", "type", "details");
+    /**
+     * Counts the rejected search filters, tagged with the reason of the rejection.
+     */
+    public static final String REJECTED_COUNTER = "activity.search.rejected";
+
+    private static final Set<String> ALLOWED_FILTER_FIELDS = Set.of("action", "type", "details", "noOfParticipants");
+
+    private static final Set<String> NUMERIC_FILTER_FIELDS = Set.of("noOfParticipants");
+
+    private final SearchPlanCache searchPlanCache;
+
+    @Value("${activity.search.max-length:1000}")
+    private int maxLength = 1000;
+
+    @Value("${activity.search.max-nodes:50}")
+    private int maxNodes = 50;
+
+    @Value("${activity.search.max-depth:5}")
+    private int maxDepth = 5;
+
+    @Value("${activity.search.max-in-arguments:20}")
+    private int maxInArguments = 20;
+
+    /**
+     * Why a search filter has been rejected.
+     *
+     * @param reason the tag of the rejected counter
+     * @param detail the detail to log
+     */
+    private record Rejection(String reason, String detail) {
+    }
+
+    private static Stream<ComparisonNode> comparisonNodes(Node node) {
+        if (node instanceof LogicalNode logicalNode) {
+            return logicalNode.getChildren().stream().flatMap(SearchValidator::comparisonNodes);
+        }
+        return Stream.of((ComparisonNode) node);
+    }
+
+    private static int countNodes(Node node) {
+        if (node instanceof LogicalNode logicalNode) {
+            return 1 + logicalNode.getChildren().stream().mapToInt(SearchValidator::countNodes).sum();
+        }
+        return 1;
+    }
+
+    private static int getDepth(Node node) {
+        if (node instanceof LogicalNode logicalNode) {
+            return 1 + logicalNode.getChildren().stream().mapToInt(SearchValidator::getDepth).max().orElse(0);
+        }
+        return 1;
+    }
+
+    private static boolean hasInvalidArguments(ComparisonNode comparisonNode) {
+        return NUMERIC_FILTER_FIELDS.contains(comparisonNode.getSelector())
+                && !comparisonNode.getArguments().stream().allMatch(argument -> argument.matches("-?\\d{1,9}"));
+    }
+
+    private static boolean isInList(ComparisonNode comparisonNode) {
+        return comparisonNode.getOperator() == RSQLOperators.IN
+                || comparisonNode.getOperator() == RSQLOperators.NOT_IN;
+    }
+
+    private static List<String> getInvalidFilterFields(Node rootNode) {
+        Stream<String> notAllowed = rootNode.accept(new SearchVisitor()).stream()
+                .filter(field -> !ALLOWED_FILTER_FIELDS.contains(field));
+        Stream<String> invalidArguments = comparisonNodes(rootNode)
+                .filter(SearchValidator::hasInvalidArguments).map(ComparisonNode::getSelector);
+        return Stream.concat(notAllowed, invalidArguments).distinct().toList();
+    }
+
+    private Optional<Rejection> check(Node rootNode) {
+        int nodes = countNodes(rootNode);
+        if (nodes > maxNodes) {
+            return Optional.of(new Rejection("nodes", String.format("%d nodes exceed %d", nodes, maxNodes)));
+        }
+        int depth = getDepth(rootNode);
+        if (depth > maxDepth) {
+            return Optional.of(new Rejection("depth", String.format("a depth of %d exceeds %d", depth, maxDepth)));
+        }
+        int inArguments = comparisonNodes(rootNode).filter(SearchValidator::isInList)
+                .mapToInt(comparisonNode -> comparisonNode.getArguments().size()).max().orElse(0);
+        if (inArguments > maxInArguments) {
+            return Optional.of(new Rejection("in-arguments",
+                    String.format("%d arguments of a list exceed %d", inArguments, maxInArguments)));
+        }
+        List<String> invalidFilterFields = getInvalidFilterFields(rootNode);
+        if (!invalidFilterFields.isEmpty()) {
+            return Optional.of(new Rejection("fields", String.format("invalid fields %s", invalidFilterFields)));
+        }
+        return Optional.empty();
+    }
+
+    private boolean reject(Rejection rejection) {
+        Metrics.counter(REJECTED_COUNTER, "reason", rejection.reason()).increment();
+        log.warn("Rejected the search filter, {}", rejection.detail());
+        return false;
+    }
 
     @Override
     public boolean isValid(String search, ConstraintValidatorContext context) {
@@ -28,17 +132,14 @@ public class SearchValidator implements ConstraintValidator<SearchConstraint, St
         if (StringUtils.isEmpty(search)) {
             return true;
         }
-
-        // Extract all filter fields
-        Node rootNode = new RSQLParser().parse(search);
-        Set<String> filterFields = rootNode.accept(new SearchVisitor());
-        List<String> invalidFilterFields = filterFields.stream()
-                .filter(field -> !ALLOWED_FILTER_FIELDS.contains(field)).collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(invalidFilterFields)) {
-            return true;
+        // Do not even parse an overly long search filter
+        if (search.length() > maxLength) {
+            return reject(new Rejection("length",
+                    String.format("%d characters exceed %d", search.length(), maxLength)));
         }
 
-        log.warn("Search filter contains invalid fields {}", invalidFilterFields);
-        return false;
+        // A cached search plan has been checked already
+        Optional<Rejection> rejection = searchPlanCache.getPlan(search).compile(SearchValidator.class, this::check);
+        return rejection.map(this::reject).orElse(true);
     }
 }
@@ -4,9 +4,14 @@ package be.dpa.bootiful.activities.application.rest;
 import be.dpa.bootiful.activities.domain.api.Activity;
 import be.dpa.bootiful.activities.domain.api.ActivityRequest;
 import be.dpa.bootiful.activities.domain.api.ActivityService;
+import be.dpa.bootiful.activities.domain.api.ActivityStatistics;
 import be.dpa.bootiful.activities.domain.api.Participant;
 import be.dpa.bootiful.activities.domain.api.ParticipantRequest;
+import be.dpa.bootiful.activities.domain.api.TaggedActivities;
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
+import be.dpa.bootiful.activities.domain.spi.exception.SearchTimeoutException;
+import com.jayway.jsonpath.JsonPath;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,8 +22,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
 import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,26 +38,41 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ActivityController.class)
@@ -106,6 +132,18 @@ public class ActivityControllerTest {
         return participant;
     }
 
+    private void mockTaggedActivities(Slice<Activity> activities) {
+        when(activityService.getTaggedActivities(any(Optional.class), anyInt(), anyInt(), anyBoolean(),
+                any(Predicate.class))).thenAnswer(invocation -> {
+                    String tag = activities.getContent().stream()
+                            .map(activity -> activity.getAlternateKey() + ":" + activity.getVersion())
+                            .collect(Collectors.joining("/"));
+                    Predicate<String> isKnown = invocation.getArgument(4);
+                    return new TaggedActivities(tag, activities.hasContent() && isKnown.test(tag)
+                            ? Optional.empty() : Optional.of(activities));
+                });
+    }
+
     @BeforeEach
     public void setUp() {
         stareAtTheWallActivity = createActivity(AK_STARE, ACTION_STARE_AT_THE_WALL, TYPE_SAD, StringUtils.EMPTY);
@@ -115,7 +153,7 @@ public class ActivityControllerTest {
 
     @Test
     public void testGetNoActivities() throws Exception {
-        when(activityService.getActivities(any(Optional.class), anyInt(), anyInt())).thenReturn(Page.empty());
+        mockTaggedActivities(Page.empty());
         mockMvc.perform(get("/api/v1/activities"))
                 .andExpect(status().isNoContent());
     }
@@ -123,7 +161,7 @@ public class ActivityControllerTest {
     @Test
     public void testGetActivities() throws Exception {
         Page<Activity> activityPage = new PageImpl<>(Arrays.asList(stareAtTheWallActivity, netflixActivity), Pageable.ofSize(2), 2L);
-        when(activityService.getActivities(any(Optional.class), anyInt(), anyInt())).thenReturn(activityPage);
+        mockTaggedActivities(activityPage);
         mockMvc.perform(get("/api/v1/activities"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._embedded.activities[0].alternateKey", is(AK_STARE)))
@@ -138,16 +176,114 @@ public class ActivityControllerTest {
                 .andExpect(jsonPath("$._embedded.activities[1]._links.self.href", is(URL_ACTIVITIES.concat(AK_NETFLIX))));
     }
 
+    @Test
+    public void testGetActivitySlice() throws Exception {
+        Slice<Activity> activitySlice = new SliceImpl<>(Arrays.asList(stareAtTheWallActivity, netflixActivity),
+                PageRequest.of(0, 2), true);
+        mockTaggedActivities(activitySlice);
+        mockMvc.perform(get("/api/v1/activities")
+                        .param("search", "type==sad,type==sofa").param("size", "2").param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$._embedded.activities[1].alternateKey", is(AK_NETFLIX)))
+                .andExpect(jsonPath("$._links.next.href").exists())
+                .andExpect(jsonPath("$._links.last").doesNotExist())
+                .andExpect(jsonPath("$.page.totalElements").doesNotExist());
+        verify(activityService).getTaggedActivities(eq(Optional.of("type==sad,type==sofa")), eq(0), eq(2), eq(false),
+                any(Predicate.class));
+    }
+
+    @Test
+    public void testGetActivitiesNotModified() throws Exception {
+        Page<Activity> activityPage = new PageImpl<>(Arrays.asList(stareAtTheWallActivity, netflixActivity),
+                Pageable.ofSize(2), 2L);
+        mockTaggedActivities(activityPage);
+        String etag = mockMvc.perform(get("/api/v1/activities"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/v1/activities").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        netflixActivity.setVersion(1L);
+        mockMvc.perform(get("/api/v1/activities").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testScrollActivities() throws Exception {
+        Window<Activity> activityWindow = Window.from(Arrays.asList(stareAtTheWallActivity, netflixActivity),
+            index -> ScrollPosition.forward(Map.of("type", TYPE_SOFA, "action", ACTION_NETFLIX, "id", 2L)), true);
+        when(activityService.getActivities(any(Optional.class), any(ScrollPosition.class), anyInt()))
+            .thenReturn(activityWindow);
+        MvcResult result = mockMvc.perform(get("/api/v1/activities?cursor=&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.activities[0].alternateKey", is(AK_STARE)))
+                .andExpect(jsonPath("$._embedded.activities[1].alternateKey", is(AK_NETFLIX)))
+                .andExpect(jsonPath("$.page").doesNotExist())
+                .andReturn();
+        String next = JsonPath.read(result.getResponse().getContentAsString(),
+            "$._links.next.href");
+        ArgumentCaptor<ScrollPosition> positionCaptor = ArgumentCaptor.forClass(ScrollPosition.class);
+        mockMvc.perform(get(next))
+                .andExpect(status().isOk());
+        verify(activityService, times(2))
+            .getActivities(any(Optional.class), positionCaptor.capture(), eq(2));
+        assertTrue(positionCaptor.getAllValues().get(0).isInitial());
+        assertEquals(ScrollPosition.forward(Map.of("type", TYPE_SOFA, "action", ACTION_NETFLIX, "id", 2L)),
+            positionCaptor.getAllValues().get(1));
+    }
+
+    @Test
+    public void testScrollActivitiesInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/activities?cursor=notacursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetActivitiesInvalidSearch() throws Exception {
         mockMvc.perform(get("/api/v1/activities?search=id==2"))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void testGetActivitiesInvalidNumericSearch() throws Exception {
+        mockMvc.perform(get("/api/v1/activities?search=noOfParticipants=gt=many"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetActivitiesTooManyNodes() throws Exception {
+        String search = IntStream.range(0, 60).mapToObj(i -> "type==t" + i).collect(Collectors.joining(","));
+        mockMvc.perform(get("/api/v1/activities").param("search", search))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetActivitiesTooDeep() throws Exception {
+        mockMvc.perform(get("/api/v1/activities")
+                .param("search", "type==a;(type==b,(type==c;(type==d,(type==e;(type==f,type==g)))))"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetActivitiesTooManyInArguments() throws Exception {
+        String arguments = IntStream.range(0, 21).mapToObj(i -> "t" + i).collect(Collectors.joining(","));
+        mockMvc.perform(get("/api/v1/activities").param("search", "type=in=(" + arguments + ")"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetActivitiesSearchTimeout() throws Exception {
+        when(activityService.getTaggedActivities(any(Optional.class), anyInt(), anyInt(), anyBoolean(),
+                any(Predicate.class))).thenThrow(new SearchTimeoutException("The search timed out", null));
+        mockMvc.perform(get("/api/v1/activities?search=type==".concat(TYPE_SAD)))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     public void testGetFilteredActivities() throws Exception {
         Page<Activity> activityPage = new PageImpl<>(Arrays.asList(stareAtTheWallActivity), Pageable.ofSize(1), 1L);
-        when(activityService.getActivities(any(Optional.class), anyInt(), anyInt())).thenReturn(activityPage);
+        mockTaggedActivities(activityPage);
         mockMvc.perform(get("/api/v1/activities?search=type==".concat(TYPE_SAD)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._embedded.activities[0].alternateKey", is(AK_STARE)))
@@ -157,6 +293,53 @@ public class ActivityControllerTest {
                 .andExpect(jsonPath("$._embedded.activities[0]._links.self.href", is(URL_ACTIVITIES.concat(AK_STARE))));
     }
 
+    @Test
+    public void testExportActivities() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Activity> consumer = invocation.getArgument(1);
+            consumer.accept(stareAtTheWallActivity);
+            consumer.accept(netflixActivity);
+            return null;
+        }).when(activityService).exportActivities(eq(Optional.of("type==sad,type==sofa")), any());
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/activities/export")
+                        .param("search", "type==sad,type==sofa"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = content.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(AK_STARE, JsonPath.read(lines[0], "$.alternateKey"));
+        assertEquals(ACTION_NETFLIX, JsonPath.read(lines[1], "$.action"));
+        assertFalse(lines[1].contains("links"));
+    }
+
+    @Test
+    public void testExportActivitiesInvalidSearch() throws Exception {
+        mockMvc.perform(get("/api/v1/activities/export").param("search", "unknown==sad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetActivityStatistics() throws Exception {
+        ActivityStatistics activityStatistics = new ActivityStatistics();
+        activityStatistics.setNoOfActivities(3L);
+        activityStatistics.setActivitiesPerType(Map.of("relaxation", 2L, "busywork", 1L));
+        activityStatistics.setParticipantsPerType(Map.of("relaxation", 2L, "busywork", 4L));
+        activityStatistics.setActivitiesPerNoOfParticipants(Map.of(1, 2L, 4, 1L));
+        when(activityService.getActivityStatistics()).thenReturn(activityStatistics);
+        mockMvc.perform(get("/api/v1/activities/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.noOfActivities", is(3)))
+                .andExpect(jsonPath("$.activitiesPerType.relaxation", is(2)))
+                .andExpect(jsonPath("$.participantsPerType.busywork", is(4)))
+                .andExpect(jsonPath("$.activitiesPerNoOfParticipants.4", is(1)))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/api/v1/activities/statistics")));
+        verify(activityService, never()).getActivityBy(anyString());
+    }
+
     @Test
     public void testGetNonExistentActivity() throws Exception {
         when(activityService.getActivityBy(anyString())).thenThrow(ActivityNotFoundException.class);
@@ -169,8 +352,30 @@ public class ActivityControllerTest {
         when(activityService.getActivityBy(eq(AK_STARE))).thenReturn(stareAtTheWallActivity);
         mockMvc.perform(get("/api/v1/activities/".concat(AK_STARE)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(jsonPath("$.alternateKey", is(AK_STARE)))
-                .andExpect(jsonPath("$.action", is(ACTION_STARE_AT_THE_WALL)));
+                .andExpect(jsonPath("$.action", is(ACTION_STARE_AT_THE_WALL)))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    public void testGetActivityNotModified() throws Exception {
+        when(activityService.getActivityVersion(eq(AK_STARE))).thenReturn(3L);
+        mockMvc.perform(get("/api/v1/activities/".concat(AK_STARE)).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        verify(activityService, never()).getActivityBy(anyString());
+    }
+
+    @Test
+    public void testGetActivityModified() throws Exception {
+        stareAtTheWallActivity.setVersion(4L);
+        when(activityService.getActivityVersion(eq(AK_STARE))).thenReturn(4L);
+        when(activityService.getActivityBy(eq(AK_STARE))).thenReturn(stareAtTheWallActivity);
+        mockMvc.perform(get("/api/v1/activities/".concat(AK_STARE)).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.alternateKey", is(AK_STARE)));
     }
 
     @Test
@@ -192,6 +397,20 @@ public class ActivityControllerTest {
                 .andExpect(jsonPath("$._embedded.participants[0].lastName", is(BOLA)));
     }
 
+    @Test
+    public void testGetActivityParticipantSlice() throws Exception {
+        when(activityService.getActivityParticipantSlice(eq(AK_BIKE), eq(1), eq(1)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(tomBolaParticipant), PageRequest.of(1, 1), true));
+        mockMvc.perform(get("/api/v1/activities/".concat(AK_BIKE).concat("/participants"))
+                        .param("page", "1").param("size", "1").param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.participants[0].alternateKey", is(AK_TOM_BOLA)))
+                .andExpect(jsonPath("$._links.prev.href").exists())
+                .andExpect(jsonPath("$._links.next.href").exists())
+                .andExpect(jsonPath("$.page.totalElements").doesNotExist());
+        verify(activityService, never()).getActivityParticipants(anyString(), anyInt(), anyInt());
+    }
+
     @Test
     public void testGetActivityParticipant() throws Exception {
         when(activityService.getParticipantBy(eq(AK_BIKE), eq(AK_TOM_BOLA))).thenReturn(tomBolaParticipant);
@@ -283,12 +502,16 @@ public class ActivityControllerTest {
 
     @Test
     public void testUpdateActivity() throws Exception {
+        Activity activity = new Activity();
+        activity.setVersion(1L);
+        when(activityService.updateActivity(eq(AK_BIKE), any(ActivityRequest.class))).thenReturn(activity);
         String updateActivityJson = readFile(UPDATE_ACTIVITY_JSON);
         mockMvc.perform(put("/api/v1/activities/BIKE")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(updateActivityJson)
                         .characterEncoding(StandardCharsets.UTF_8))
                 .andExpect(redirectedUrl(URL_ACTIVITY_BIKE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
                 .andExpect(status().isNoContent());
         ArgumentCaptor<ActivityRequest> activityRequestArgumentCaptor = ArgumentCaptor.forClass(ActivityRequest.class);
         verify(activityService).updateActivity(eq(AK_BIKE), activityRequestArgumentCaptor.capture());
@@ -299,6 +522,38 @@ public class ActivityControllerTest {
         assertEquals("", activityRequest.getDetails());
     }
 
+    @Test
+    public void testUpdateActivityIfMatch() throws Exception {
+        Activity activity = new Activity();
+        activity.setVersion(4L);
+        when(activityService.updateActivity(eq(AK_BIKE), any(ActivityRequest.class), eq(3L))).thenReturn(activity);
+        mockMvc.perform(put("/api/v1/activities/BIKE")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readFile(UPDATE_ACTIVITY_JSON))
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void testUpdateActivityVersionMismatch() throws Exception {
+        when(activityService.updateActivity(eq(AK_BIKE), any(ActivityRequest.class), eq(3L)))
+                .thenThrow(ActivityVersionMismatchException.class);
+        mockMvc.perform(put("/api/v1/activities/BIKE")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readFile(UPDATE_ACTIVITY_JSON))
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/v1/activities/BIKE")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readFile(UPDATE_ACTIVITY_JSON))
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     public void testUpdateActivityInvalidRequest() throws Exception {
         String updateActivityInvalidJson = readFile(UPDATE_ACTIVITY_INVALID_JSON);
@@ -1,19 +1,31 @@
 package be.dpa.bootiful.activities.application.rest;
 
+import be.dpa.bootiful.activities.domain.api.Activity;
+import be.dpa.bootiful.activities.domain.api.Participant;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.when;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @ExtendWith(MockitoExtension.class)
 public class RelationServiceTest {
@@ -22,6 +34,10 @@ public class RelationServiceTest {
 
     private static final String INVALID_LINK = "^-^";
 
+    private static final String ACTIVITY_AK = "A B/\u00e9?x";
+
+    private static final String PARTICIPANT_AK = "P 1";
+
     @Mock
     private Link link;
 
@@ -42,4 +58,59 @@ public class RelationServiceTest {
         Optional<URI> optUri = activityRelationService.convertToUri(link);
         assertFalse(optUri.isPresent());
     }
+
+    @AfterEach
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testActivityLinksEqualControllerLinks() throws ActivityNotFoundException {
+        bindForwardedRequest();
+        Activity activity = new Activity();
+        activity.setAlternateKey(ACTIVITY_AK);
+        new RelationService().addActivityLinks(List.of(activity));
+
+        Link selfLink = activity.getRequiredLink(IanaLinkRelations.SELF);
+        assertSameLink(linkTo(methodOn(ActivityController.class).getActivityBy(ACTIVITY_AK, null)).withSelfRel(),
+                selfLink);
+        assertEquals(1, selfLink.getAffordances().size());
+        assertSameLink(linkTo(methodOn(ActivityController.class)
+                .getActivityParticipantsBy(ACTIVITY_AK, null, null, null))
+                .withRel("participants").expand(), activity.getRequiredLink("participants"));
+        assertSameLink(linkTo(methodOn(ActivityController.class).getActivities(null, null, null, null, null, null))
+                .withRel("activities").expand(), activity.getRequiredLink("activities"));
+    }
+
+    @Test
+    public void testParticipantLinksEqualControllerLinks()
+            throws ActivityNotFoundException, ParticipantNotFoundException {
+        bindForwardedRequest();
+        Participant participant = new Participant();
+        participant.setAlternateKey(PARTICIPANT_AK);
+        new RelationService().addParticipantLinks(ACTIVITY_AK, List.of(participant));
+
+        assertSameLink(linkTo(methodOn(ActivityController.class)
+                .getActivityParticipantBy(ACTIVITY_AK, PARTICIPANT_AK)).withSelfRel(),
+                participant.getRequiredLink(IanaLinkRelations.SELF));
+        assertSameLink(linkTo(methodOn(ActivityController.class)
+                .getActivityParticipantsBy(ACTIVITY_AK, null, null, null))
+                .withRel("participants").expand(), participant.getRequiredLink("participants"));
+        assertSameLink(linkTo(methodOn(ActivityController.class).getActivityBy(ACTIVITY_AK, null)).withRel("activity"),
+                participant.getRequiredLink("activity"));
+        assertSameLink(linkTo(methodOn(ActivityController.class).getActivities(null, null, null, null, null, null))
+                .withRel("activities").expand(), participant.getRequiredLink("activities"));
+    }
+
+    private void bindForwardedRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Forwarded-Host", "example.org");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private void assertSameLink(Link expected, Link actual) {
+        assertEquals(expected.getRel(), actual.getRel());
+        assertEquals(expected.getHref(), actual.getHref());
+        assertFalse(actual.isTemplated());
+    }
 }
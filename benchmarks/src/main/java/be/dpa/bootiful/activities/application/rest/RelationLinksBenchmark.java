@@ -0,0 +1,116 @@
+package be.dpa.bootiful.activities.application.rest;
+
+import be.dpa.bootiful.activities.domain.api.Activity;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static be.dpa.bootiful.activities.application.rest.util.RelationConstants.RELATION_ACTIVITIES;
+import static be.dpa.bootiful.activities.application.rest.util.RelationConstants.RELATION_PARTICIPANTS;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.afford;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Compares adding the links to a page of activities using the URI templates of the relation service
+ * with invoking the controller methods on a proxy for every link.
+ * It lives in the package of the relation service as the service and the controller are package private.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RelationLinksBenchmark {
+
+    @Param({"5", "100"})
+    private int pageSize;
+
+    private final RelationService relationService = new RelationService();
+
+    private List<Activity> activities;
+
+    /**
+     * Binds a request so that the links resolve against its base URI, like they do in the controller.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    /**
+     * Creates a page of activities without links.
+     */
+    @Setup(Level.Invocation)
+    public void createActivities() {
+        activities = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; ++i) {
+            Activity activity = new Activity();
+            activity.setAlternateKey("AK" + i);
+            activities.add(activity);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Adds the links using the URI templates resolved once for the page.
+     *
+     * @return the activities with their links
+     */
+    @Benchmark
+    public List<Activity> linkTemplates() {
+        relationService.addActivityLinks(activities);
+        return activities;
+    }
+
+    /**
+     * Adds the links the way the relation service used to, through a controller proxy for every link.
+     *
+     * @return the activities with their links
+     * @throws ActivityNotFoundException        never
+     * @throws ActivityVersionMismatchException never
+     */
+    @Benchmark
+    public List<Activity> controllerProxies() throws ActivityNotFoundException, ActivityVersionMismatchException {
+        for (Activity activity : activities) {
+            Link selfLink = linkTo(methodOn(ActivityController.class)
+                .getActivityBy(activity.getAlternateKey(), null)).withSelfRel();
+            selfLink = selfLink.andAffordance(afford(methodOn(ActivityController.class)
+                .updateActivity(null, activity.getAlternateKey(), null)));
+            Link participantsLink = linkTo(methodOn(ActivityController.class)
+                .getActivityParticipantsBy(activity.getAlternateKey(), null, null, null)).withRel(RELATION_PARTICIPANTS)
+                .expand();
+            Link activitiesLink = linkTo(methodOn(ActivityController.class)
+                .getActivities(null, null, null, null, null, null)).withRel(RELATION_ACTIVITIES).expand();
+            activity.add(selfLink, participantsLink, activitiesLink);
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,100 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityImportRepository;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import org.apache.commons.collections4.ListUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures importing activities with generated participants, with and without JDBC batching.
+ * The activities are either imported one by one or in chunks sharing a transaction and an external key lookup.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityImportBenchmark {
+
+    @Param({"100000"})
+    private int activityCount;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ActivityImportRepository activityImportRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private List<ActivityRecord> activityRecords;
+
+    /**
+     * Boots the application with the configured JDBC batch size and prepares the activities to import.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("activity-import-" + batchSize,
+                Map.of("spring.jpa.properties.hibernate.jdbc.batch_size", String.valueOf(batchSize)));
+        activityImportRepository = context.getBean(ActivityImportRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        activityRecords = new ArrayList<>(activityCount);
+        for (int i = 0; i < activityCount; ++i) {
+            activityRecords.add(new ActivityRecord("AK" + i, "EXT" + i, "Import activity " + i, "busywork",
+                    1 + i % 4, null, 0L));
+        }
+    }
+
+    /**
+     * Removes the activities of the previous iteration, the import skips activities it already knows.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM participant");
+        jdbcTemplate.update("DELETE FROM activity");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Imports all prepared activities, each one along with its generated participants.
+     */
+    @Benchmark
+    public void importActivities() {
+        activityRecords.forEach(activityImportRepository::importActivity);
+    }
+
+    /**
+     * Imports all prepared activities in chunks of 500, each one along with its generated participants.
+     */
+    @Benchmark
+    public void importActivityChunks() {
+        ListUtils.partition(activityRecords, 500).forEach(activityImportRepository::importActivities);
+    }
+}
@@ -0,0 +1,106 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.domain.api.Activity;
+import be.dpa.bootiful.activities.domain.api.ActivityRequest;
+import be.dpa.bootiful.activities.domain.impl.mapper.ActivityMapper;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+import be.dpa.bootiful.activities.infrastructure.jpa.mapper.ActivityEntityMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mappings every activity goes through on its way between the REST controller and the database,
+ * run with the gc profiler they also show what every mapping allocates.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivityMappingBenchmark {
+
+    private static final String ACTIVITY_AK = "2c6f4a0e-8f0c-4d4b-9d4e-4b1f0c7d5a11";
+
+    private final ActivityMapper activityMapper = Mappers.getMapper(ActivityMapper.class);
+
+    private final ActivityEntityMapper activityEntityMapper = Mappers.getMapper(ActivityEntityMapper.class);
+
+    private ActivityRequest activityRequest;
+
+    private ActivityRecord activityRecord;
+
+    private ActivityEntity activityEntity;
+
+    /**
+     * Creates an activity request, record and entity of a typical size.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        activityRequest = new ActivityRequest();
+        activityRequest.setAction("Learn how to play a new sport");
+        activityRequest.setType("recreational");
+        activityRequest.setNoOfParticipants(4);
+        activityRequest.setDetails("Grab a ball and find a field nearby");
+        activityRecord = new ActivityRecord(ACTIVITY_AK, "5808228", activityRequest.getAction(),
+                activityRequest.getType(), activityRequest.getNoOfParticipants(), activityRequest.getDetails(), 3L);
+        activityEntity = activityEntityMapper.toActivityEntity(activityRecord);
+        activityEntity.setId(42L);
+        activityEntity.setVersion(3L);
+    }
+
+    /**
+     * Maps an incoming activity request to a record.
+     *
+     * @return the activity record
+     */
+    @Benchmark
+    public ActivityRecord requestToRecord() {
+        return activityMapper.toActivityRecord(activityRequest, ACTIVITY_AK);
+    }
+
+    /**
+     * Maps a record to the activity returned to the client, without its links.
+     *
+     * @return the activity
+     */
+    @Benchmark
+    public Activity recordToResponse() {
+        return activityMapper.toActivityResponse(activityRecord);
+    }
+
+    /**
+     * Maps a record to the entity to persist.
+     *
+     * @return the activity entity
+     */
+    @Benchmark
+    public ActivityEntity recordToEntity() {
+        return activityEntityMapper.toActivityEntity(activityRecord);
+    }
+
+    /**
+     * Maps a loaded entity to a record.
+     *
+     * @return the activity record
+     */
+    @Benchmark
+    public ActivityRecord entityToRecord() {
+        return activityEntityMapper.toActivityRecord(activityEntity);
+    }
+}
@@ -0,0 +1,108 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a wildcard search on the action of the activities using the trigram index compared to the
+ * leading wildcard LIKE scan over all activities it replaces.
+ * Indexing a million activities takes a while and needs a large heap.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ActivitySearchBenchmark {
+
+    private static final String[] VERBS = {"Bake", "Paint", "Visit", "Organize", "Learn", "Clean", "Watch", "Write"};
+
+    private static final String[] NOUNS = {"a cake", "the fence", "a museum", "a picnic", "juggling", "the garage",
+        "a movie", "a letter"};
+
+    private static final String WORD = "party";
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000000"})
+    private int activityCount;
+
+    private ConfigurableApplicationContext context;
+
+    private ActivityRepository activityRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Boots the application and inserts the activities, every hundredth mentions the searched word.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("activity-search-" + activityCount);
+        activityRepository = context.getBean(ActivityRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> activities = new ArrayList<>(activityCount);
+        for (int i = 1; i <= activityCount; ++i) {
+            String action = String.format("%s %s %s", VERBS[i % VERBS.length], NOUNS[i / VERBS.length % NOUNS.length],
+                    i % 100 == 0 ? "for the " + WORD : "on day " + i % 365);
+            activities.add(new Object[] {i, "AK" + i, action, "type" + i % 10});
+            if (activities.size() == 10_000 || i == activityCount) {
+                jdbcTemplate.batchUpdate("INSERT INTO activity (id, alternate_key, action, type, no_of_participants)"
+                        + " VALUES (?, ?, ?, ?, 1)", activities);
+                activities.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Searches the first page of the activities mentioning the word, narrowed down by the trigram index.
+     *
+     * @return the first page of matching activities
+     */
+    @Benchmark
+    public Page<ActivityRecord> trigramIndex() {
+        return activityRepository.getAll(Optional.of("action==*" + WORD + "*"), 0, PAGE_SIZE);
+    }
+
+    /**
+     * Searches the same page and count with a plain leading wildcard LIKE.
+     *
+     * @return the number of matching activities
+     */
+    @Benchmark
+    public Long likeScan() {
+        jdbcTemplate.queryForList("SELECT * FROM activity WHERE action LIKE ? OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY",
+                "%" + WORD + "%", PAGE_SIZE);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM activity WHERE action LIKE ?", Long.class,
+                "%" + WORD + "%");
+    }
+}
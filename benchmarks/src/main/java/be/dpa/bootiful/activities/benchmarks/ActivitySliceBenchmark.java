@@ -0,0 +1,95 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.domain.impl.ActivityStatisticsCounters;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import be.dpa.bootiful.activities.infrastructure.jpa.ActivityDatasetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting a page of a large filtered result set with its count compared to a slice fetching one
+ * activity more than the page size instead of counting.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ActivitySliceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final long SEED = 42L;
+
+    @Param({"1000000"})
+    private int activityCount;
+
+    /**
+     * A filter matching a ninth of the activities and one matching three quarters of them.
+     */
+    @Param({"type==social", "noOfParticipants=gt=1"})
+    private String search;
+
+    private ConfigurableApplicationContext context;
+
+    private ActivityRepository activityRepository;
+
+    /**
+     * Boots the application and inserts the activities.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("activity-slice-" + activityCount);
+        activityRepository = context.getBean(ActivityRepository.class);
+        new ActivityDatasetGenerator(context.getBean(JdbcTemplate.class))
+                .generate(SEED, activityCount, ActivityDatasetGenerator.uniform(1, 4), false);
+        context.getBean(ActivityStatisticsCounters.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Gets the first page of the matching activities and counts all of them.
+     *
+     * @return the first page of matching activities
+     */
+    @Benchmark
+    public Page<ActivityRecord> page() {
+        return activityRepository.getAll(Optional.of(search), 0, PAGE_SIZE);
+    }
+
+    /**
+     * Gets the first slice of the matching activities without counting them.
+     *
+     * @return the first slice of matching activities
+     */
+    @Benchmark
+    public Slice<ActivityRecord> slice() {
+        return activityRepository.getSlice(Optional.of(search), 0, PAGE_SIZE);
+    }
+}
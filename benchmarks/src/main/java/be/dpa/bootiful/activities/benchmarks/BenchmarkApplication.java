@@ -0,0 +1,67 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots the domain and the JPA adapter against an in-memory H2 database to benchmark them.
+ *
+ * @author denis
+ */
+@SpringBootApplication(scanBasePackages = {
+    "be.dpa.bootiful.activities.domain",
+    "be.dpa.bootiful.activities.infrastructure.jpa"})
+@EntityScan("be.dpa.bootiful.activities.infrastructure.jpa.entities")
+@EnableJpaRepositories("be.dpa.bootiful.activities.infrastructure.jpa")
+public class BenchmarkApplication {
+
+    /**
+     * Starts a benchmark application context using its own in-memory database.
+     *
+     * @param databaseName the name of the in-memory database
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext start(String databaseName) {
+        return start(databaseName, Map.of());
+    }
+
+    /**
+     * Starts a benchmark application context using its own in-memory database and additional properties.
+     *
+     * @param databaseName the name of the in-memory database
+     * @param additionalProperties properties overriding the defaults of the benchmarks
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext start(String databaseName, Map<String, Object> additionalProperties) {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "spring.datasource.url", String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", databaseName),
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "sa",
+                "spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto", "none",
+                "spring.jpa.open-in-view", "false",
+                "spring.jpa.properties.hibernate.jdbc.batch_size", "50",
+                "spring.jpa.properties.hibernate.order_inserts", "true",
+                "spring.jpa.properties.hibernate.order_updates", "true",
+                "logging.level.root", "WARN"));
+        properties.putAll(Map.of(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", "true",
+                "spring.jpa.properties.hibernate.cache.region.factory_class", "jcache",
+                "spring.jpa.properties.hibernate.javax.cache.provider",
+                "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+                "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy", "create"));
+        properties.putAll(additionalProperties);
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .logStartupInfo(false)
+                .run();
+    }
+}
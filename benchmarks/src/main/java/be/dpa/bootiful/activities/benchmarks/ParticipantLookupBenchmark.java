@@ -0,0 +1,90 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.domain.api.ActivityService;
+import be.dpa.bootiful.activities.domain.api.Participant;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of a single activity participant for a growing number of activity participants.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParticipantLookupBenchmark {
+
+    private static final String ACTIVITY_AK = "BENCHMARK";
+
+    @Param({"10", "1000", "10000"})
+    private int participantCount;
+
+    private ConfigurableApplicationContext context;
+
+    private ActivityService activityService;
+
+    private String participantAk;
+
+    /**
+     * Boots the application and creates an activity with the configured amount of participants.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("participant-lookup-" + participantCount);
+        activityService = context.getBean(ActivityService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO activity (id, alternate_key, action, type, no_of_participants)"
+                + " VALUES (1, ?, 'Run a benchmark', 'busywork', ?)", ACTIVITY_AK, participantCount);
+        List<Object[]> participants = new ArrayList<>(participantCount);
+        for (int i = 1; i <= participantCount; ++i) {
+            participants.add(new Object[] {i, "P" + i, "First" + i, "Last" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO participant (id, alternate_key, first_name, last_name)"
+                + " VALUES (?, ?, ?, ?)", participants);
+        jdbcTemplate.batchUpdate("INSERT INTO activity_participant"
+                + " (id, activity_id, participant_id, first_name_key, last_name_key) VALUES (?, 1, ?, ?, ?)",
+                participants.stream().map(p -> new Object[] {p[0], p[0], "first" + p[0], "last" + p[0]}).toList());
+        // Pick a participant from the middle so that neither end of the list is favoured
+        participantAk = "P" + (participantCount / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Looks up a single participant of the benchmark activity.
+     *
+     * @return the participant
+     * @throws ActivityNotFoundException    in case the benchmark activity is missing
+     * @throws ParticipantNotFoundException in case the benchmark participant is missing
+     */
+    @Benchmark
+    public Participant getParticipantBy() throws ActivityNotFoundException, ParticipantNotFoundException {
+        return activityService.getParticipantBy(ACTIVITY_AK, participantAk);
+    }
+}
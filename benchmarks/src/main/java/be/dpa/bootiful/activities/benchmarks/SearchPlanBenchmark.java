@@ -0,0 +1,110 @@
+package be.dpa.bootiful.activities.benchmarks;
+
+import be.dpa.bootiful.activities.application.rest.validation.SearchValidator;
+import be.dpa.bootiful.activities.domain.search.SearchPlanCache;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityTrigramEntity;
+import be.dpa.bootiful.activities.infrastructure.jpa.filter.CustomRsqlVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating a search filter and building its JPA specification, once for a filter seen for the first
+ * time and once for a filter whose plan is cached already. The specification is only built, not executed.
+ *
+ * @author denis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchPlanBenchmark {
+
+    /**
+     * A single comparison, a conjunction with a numeric argument and a nested filter with a trigram wildcard.
+     */
+    @Param({"type==busywork", "type==busywork;noOfParticipants=gt=1",
+        "action==*party*,(type=in=(social,recreational,relaxation);noOfParticipants=le=4)"})
+    private String search;
+
+    // A cache without room for a single plan parses and compiles every filter again
+    private final SearchPlanCache uncachedPlans = new SearchPlanCache(0);
+
+    private final SearchPlanCache cachedPlans = new SearchPlanCache(256);
+
+    private SearchValidator uncachedValidator;
+
+    private SearchValidator cachedValidator;
+
+    /**
+     * Creates the validators and caches the plan of the search filter.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        uncachedValidator = new SearchValidator(uncachedPlans);
+        cachedValidator = new SearchValidator(cachedPlans);
+        cachedValidator.isValid(search, null);
+        toSpecification(cachedPlans);
+    }
+
+    private Specification<ActivityEntity> toSpecification(SearchPlanCache searchPlanCache) {
+        // Compiled the same way the activity repository does
+        return searchPlanCache.getPlan(search).compile(ActivityEntity.class, rootNode ->
+                rootNode.accept(new CustomRsqlVisitor<ActivityEntity>(ActivityTrigramEntity.INDEXED_PROPERTIES)));
+    }
+
+    /**
+     * Parses and validates a search filter.
+     *
+     * @return whether the search filter is valid
+     */
+    @Benchmark
+    public boolean validateUncached() {
+        return uncachedValidator.isValid(search, null);
+    }
+
+    /**
+     * Validates a search filter whose plan has been validated before.
+     *
+     * @return whether the search filter is valid
+     */
+    @Benchmark
+    public boolean validateCached() {
+        return cachedValidator.isValid(search, null);
+    }
+
+    /**
+     * Parses a search filter and builds its specification.
+     *
+     * @return the specification
+     */
+    @Benchmark
+    public Specification<ActivityEntity> specificationUncached() {
+        return toSpecification(uncachedPlans);
+    }
+
+    /**
+     * Gets the specification of a search filter from its cached plan.
+     *
+     * @return the specification
+     */
+    @Benchmark
+    public Specification<ActivityEntity> specificationCached() {
+        return toSpecification(cachedPlans);
+    }
+}
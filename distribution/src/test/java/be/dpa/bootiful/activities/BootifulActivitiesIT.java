@@ -8,6 +8,9 @@ import be.dpa.bootiful.activities.infrastructure.jpa.ActivityParticipantEntityRe
 import be.dpa.bootiful.activities.infrastructure.jpa.ParticipantEntityRepository;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
+import be.dpa.bootiful.activities.infrastructure.metrics.RepositoryMetricsPostProcessor;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.IteratorUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -27,8 +30,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.is;
@@ -70,6 +75,9 @@ class BootifulActivitiesIT {
     @Autowired
     private ActivityImportRepository activityImportRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private BoredActivityProvider boredActivityProvider;
 
@@ -126,6 +134,27 @@ class BootifulActivitiesIT {
                 .andExpect(jsonPath("$.page.number", is(1)));
     }
 
+    @Test
+    public void testScrollActivities() throws Exception {
+        List<ActivityEntity> activityEntities = generateRandomActivities(ACTIVITY_COUNT);
+        activityEntityRepository.saveAll(activityEntities);
+        Set<String> alternateKeys = new HashSet<>();
+        String next = "/api/v1/activities?cursor=&size=30";
+        int windows = 0;
+        while (next != null) {
+            String body = mockMvc.perform(get(next))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.page").doesNotExist())
+                    .andReturn().getResponse().getContentAsString();
+            alternateKeys.addAll(JsonPath.read(body, "$._embedded.activities[*].alternateKey"));
+            List<String> nextLinks = JsonPath.read(body, "$._links[?(@.next)].next.href");
+            next = nextLinks.isEmpty() ? null : nextLinks.get(0);
+            windows++;
+        }
+        assertEquals(4, windows);
+        assertEquals(ACTIVITY_COUNT, alternateKeys.size());
+    }
+
     @Test
     public void testGetActivitiesWithSearch() throws Exception {
         List<ActivityEntity> activityEntities = generateRandomActivities(ACTIVITY_COUNT);
@@ -240,4 +269,16 @@ class BootifulActivitiesIT {
         List<ActivityEntity> activityEntities = IteratorUtils.toList(activityEntityIterable.iterator());
         assertTrue(CollectionUtils.isEmpty(activityEntities));
     }
+
+    @Test
+    public void testMetrics() throws Exception {
+        activityEntityRepository.saveAll(generateRandomActivities(ACTIVITY_COUNT));
+        mockMvc.perform(get("/api/v1/activities"))
+                .andExpect(status().isOk());
+        assertTrue(meterRegistry.get("http.server.requests").tag("uri", "/api/v1/activities").timer().count() > 0L);
+        assertTrue(meterRegistry.get(RepositoryMetricsPostProcessor.REPOSITORY_TIMER)
+                .tag("repository", "ActivityRepository").timers().stream().anyMatch(timer -> timer.count() > 0L));
+        assertNotNull(meterRegistry.find("hikaricp.connections").gauge());
+        assertNotNull(meterRegistry.find("hibernate.sessions.open").functionCounter());
+    }
 }
@@ -0,0 +1,266 @@
+package be.dpa.bootiful.activities;
+
+import be.dpa.bootiful.activities.domain.api.ActivityRequest;
+import be.dpa.bootiful.activities.domain.api.ParticipantRequest;
+import be.dpa.bootiful.activities.domain.impl.ActivityStatisticsCounters;
+import be.dpa.bootiful.activities.infrastructure.jpa.ActivityDataset;
+import be.dpa.bootiful.activities.infrastructure.jpa.ActivityDatasetGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mixed workload against the running app from concurrent clients, each of them on its own virtual thread,
+ * and reports the throughput and the latency percentiles per endpoint. The activities are seeded into an in-memory
+ * database and the activity provider is never called, so the load test runs offline. It is not part of the build,
+ * run it with f.e. {@code mvn -pl distribution -am verify -Dtest=BootifulActivitiesLoadIT
+ * -Dsurefire.failIfNoSpecifiedTests=false -Dload.clients=256 -Dload.duration=2m}.
+ *
+ * @author denis
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application-load.properties")
+class BootifulActivitiesLoadIT {
+
+    private static final String ACTIVITIES_PATH = "/api/v1/activities";
+
+    // Every tenth seeded activity is kept for the deletes, the others are read and written concurrently
+    private static final int DELETABLE_EVERY = 10;
+
+    private static final int PAGE_SIZE = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final Queue<String> deletableActivityAks = new ConcurrentLinkedQueue<>();
+
+    // Numbers the requests of all clients and runs, the names of the participants of an activity have to be unique
+    private final AtomicInteger requestNo = new AtomicInteger();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActivityStatisticsCounters activityStatisticsCounters;
+
+    @Value("${load.clients:32}")
+    private int clients;
+
+    @Value("${load.warmup:10s}")
+    private Duration warmup;
+
+    @Value("${load.duration:30s}")
+    private Duration duration;
+
+    @Value("${load.activities:10000}")
+    private int activityCount;
+
+    @Value("${load.seed:42}")
+    private long seed;
+
+    /**
+     * The requests of the workload and how often they are sent, in percent.
+     */
+    private enum Endpoint {
+        LIST(25), SEARCH(20), GET(30), ENROLL(10), UPDATE(10), DELETE(5);
+
+        private final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The latencies in microseconds and the failed requests of an endpoint.
+     */
+    private record EndpointStats(Histogram latencies, LongAdder failures) {
+
+        EndpointStats() {
+            this(new ConcurrentHistogram(3), new LongAdder());
+        }
+    }
+
+    private String toActivityAk(int index) {
+        return ActivityDataset.toAlternateKey(seed, index);
+    }
+
+    private void seed() {
+        new ActivityDatasetGenerator(jdbcTemplate)
+                .generate(seed, activityCount, ActivityDatasetGenerator.uniform(1, 8), true);
+        // The counters have been built at the startup, before the bulk loaded rows
+        activityStatisticsCounters.rebuild();
+        for (int i = 0; i < activityCount; i += DELETABLE_EVERY) {
+            deletableActivityAks.add(toActivityAk(i));
+        }
+    }
+
+    private static String pickType(Random random) {
+        return ActivityDatasetGenerator.TYPES.get(random.nextInt(ActivityDatasetGenerator.TYPES.size()));
+    }
+
+    private static Endpoint pickEndpoint(Random random) {
+        int roll = random.nextInt(100);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.GET;
+    }
+
+    private String pickActivityAk(Random random) {
+        int index = random.nextInt(activityCount);
+        // Never pick an activity which might be deleted in the meantime
+        return toActivityAk(index % DELETABLE_EVERY == 0 ? (index + 1) % activityCount : index);
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + ACTIVITIES_PATH + path))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private HttpRequest.BodyPublisher toJson(Object body) throws JsonProcessingException {
+        return HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body));
+    }
+
+    private HttpRequest toRequest(Endpoint endpoint, Random random, int client) throws JsonProcessingException {
+        return switch (endpoint) {
+            case LIST -> newRequest("?page=" + random.nextInt(Math.max(1, activityCount / PAGE_SIZE))
+                    + "&size=" + PAGE_SIZE).GET().build();
+            case SEARCH -> newRequest("?search=type==" + pickType(random) + "&size=" + PAGE_SIZE).GET().build();
+            case GET -> newRequest("/" + pickActivityAk(random)).GET().build();
+            case ENROLL -> {
+                ParticipantRequest participantRequest = new ParticipantRequest();
+                participantRequest.setFirstName("Client " + client);
+                participantRequest.setLastName("Participant " + requestNo.incrementAndGet());
+                yield newRequest("/" + pickActivityAk(random) + "/participants")
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(toJson(participantRequest)).build();
+            }
+            case UPDATE -> {
+                ActivityRequest activityRequest = new ActivityRequest();
+                activityRequest.setAction("Updated load activity " + requestNo.incrementAndGet());
+                activityRequest.setType(pickType(random));
+                activityRequest.setNoOfParticipants(1 + random.nextInt(8));
+                yield newRequest("/" + pickActivityAk(random))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .PUT(toJson(activityRequest)).build();
+            }
+            case DELETE -> {
+                String activityAk = deletableActivityAks.poll();
+                yield activityAk == null ? null : newRequest("/" + activityAk).DELETE().build();
+            }
+        };
+    }
+
+    private void runClient(int client, long deadline, Map<Endpoint, EndpointStats> stats) {
+        Random random = new Random(seed + client);
+        try {
+            while (System.nanoTime() < deadline) {
+                Endpoint endpoint = pickEndpoint(random);
+                HttpRequest request = toRequest(endpoint, random, client);
+                if (request == null) {
+                    // No activity left to delete
+                    continue;
+                }
+                EndpointStats endpointStats = stats.get(endpoint);
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    endpointStats.latencies().recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (response.statusCode() >= 400) {
+                        endpointStats.failures().increment();
+                    }
+                } catch (IOException e) {
+                    endpointStats.failures().increment();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<Endpoint, EndpointStats> runLoad(Duration runDuration) {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        long deadline = System.nanoTime() + runDuration.toNanos();
+        // Closing the executor waits for all clients to pass the deadline
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; ++client) {
+                int clientNo = client;
+                executor.submit(() -> runClient(clientNo, deadline, stats));
+            }
+        }
+        return stats;
+    }
+
+    private void report(Map<Endpoint, EndpointStats> stats) {
+        double seconds = duration.toMillis() / 1000.0;
+        log.info("{} clients for {}, latencies in microseconds", clients, duration);
+        log.info(String.format("%-8s %10s %8s %10s %8s %8s %8s %8s",
+                "endpoint", "requests", "failed", "req/s", "p50", "p99", "p999", "max"));
+        stats.forEach((endpoint, endpointStats) -> {
+            Histogram latencies = endpointStats.latencies();
+            log.info(String.format("%-8s %10d %8d %10.1f %8d %8d %8d %8d", endpoint, latencies.getTotalCount(),
+                    endpointStats.failures().sum(), latencies.getTotalCount() / seconds,
+                    latencies.getValueAtPercentile(50.0), latencies.getValueAtPercentile(99.0),
+                    latencies.getValueAtPercentile(99.9), latencies.getMaxValue()));
+        });
+    }
+
+    @Test
+    public void testMixedWorkload() {
+        seed();
+        // Lets the JIT compile the hot paths and fills the caches, its latencies are thrown away
+        runLoad(warmup);
+        Map<Endpoint, EndpointStats> stats = runLoad(duration);
+        report(stats);
+
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            assertEquals(0L, entry.getValue().failures().sum(), entry.getKey() + " requests failed");
+        }
+        assertTrue(stats.get(Endpoint.GET).latencies().getTotalCount() > 0L, "No activity has been got");
+    }
+}
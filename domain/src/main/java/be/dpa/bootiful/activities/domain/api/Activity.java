@@ -1,6 +1,6 @@
 package be.dpa.bootiful.activities.domain.api;
 
-
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.hateoas.RepresentationModel;
 
@@ -21,4 +21,7 @@ public class Activity extends RepresentationModel<Activity> {
     private int noOfParticipants;
 
     private String details;
+
+    @JsonIgnore
+    private long version;
 }
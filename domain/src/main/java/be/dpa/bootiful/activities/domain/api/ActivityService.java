@@ -1,11 +1,17 @@
 package be.dpa.bootiful.activities.domain.api;
 
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
 import be.dpa.bootiful.activities.domain.api.exception.InvalidParticipantException;
 import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Provides access to the activity domain layer.
@@ -24,6 +30,55 @@ public interface ActivityService {
      */
     Page<Activity> getActivities(Optional<String> search, int page, int size);
 
+    /**
+     * Scrolls through the activities ordered by their type and action without counting them.
+     *
+     * @param search   an optional search string
+     * @param position the position to continue scrolling after
+     * @param size     the maximum amount of activities to get
+     * @return a window of activities
+     */
+    Window<Activity> getActivities(Optional<String> search, ScrollPosition position, int size);
+
+    /**
+     * Gets a page of activities without counting all of them, it only knows whether there is a next page.
+     *
+     * @param search an optional search string
+     * @param page   the page index
+     * @param size   the page size
+     * @return a slice of activities
+     */
+    Slice<Activity> getActivitySlice(Optional<String> search, int page, int size);
+
+    /**
+     * Gets a page or slice of activities together with its tag, the activities are only mapped in case the caller
+     * does not know the tag yet.
+     *
+     * @param search  an optional search string
+     * @param page    the page index
+     * @param size    the page size
+     * @param count   whether to count all activities, without a count only a slice is returned
+     * @param isKnown tells whether the caller already has the page with the passed tag
+     * @return the tag of the page and, unless known, its activities
+     */
+    TaggedActivities getTaggedActivities(Optional<String> search, int page, int size, boolean count,
+                                         Predicate<String> isKnown);
+
+    /**
+     * Exports all activities without paging them, ordered by their creation.
+     *
+     * @param search   an optional search string
+     * @param consumer the consumer of the activities, called once per activity
+     */
+    void exportActivities(Optional<String> search, Consumer<Activity> consumer);
+
+    /**
+     * Gets the activities per type, the participants per type and the distribution of the number of participants.
+     *
+     * @return the activity statistics
+     */
+    ActivityStatistics getActivityStatistics();
+
     /**
      * Gets the the participants of a specific activity.
      *
@@ -34,6 +89,16 @@ public interface ActivityService {
      */
     Page<Participant> getActivityParticipants(String activityAk, int page, int size);
 
+    /**
+     * Gets a page of the participants of a specific activity without counting all of them.
+     *
+     * @param activityAk the alternate key of the activity
+     * @param page       the page index
+     * @param size       the page size
+     * @return a slice of the participants of the passed activity
+     */
+    Slice<Participant> getActivityParticipantSlice(String activityAk, int page, int size);
+
     /**
      * Gets an activity using its alternate key.
      *
@@ -43,6 +108,15 @@ public interface ActivityService {
      */
     Activity getActivityBy(String activityAk) throws ActivityNotFoundException;
 
+    /**
+     * Gets the version of an activity without getting the activity itself.
+     *
+     * @param activityAk the alternate key
+     * @return the version of the activity
+     * @throws ActivityNotFoundException in case no activity could be found for the passed alternate key
+     */
+    long getActivityVersion(String activityAk) throws ActivityNotFoundException;
+
     /**
      * Creates a new activity using the passed activity request.
      *
@@ -61,6 +135,19 @@ public interface ActivityService {
     Activity updateActivity(String activityAk,
                             ActivityRequest activityRequest);
 
+    /**
+     * Updates an existing activity unless it has been changed since it had the expected version.
+     *
+     * @param activityAk      the alternate key of the activity to update
+     * @param activityRequest the activity request containing the data to set
+     * @param expectedVersion the version the activity is expected to still have
+     * @return the updated activity
+     * @throws ActivityVersionMismatchException in case the activity has been changed or deleted in the meantime
+     */
+    Activity updateActivity(String activityAk,
+                            ActivityRequest activityRequest,
+                            long expectedVersion) throws ActivityVersionMismatchException;
+
     /**
      * Deletes an activity by its alternate key.
      *
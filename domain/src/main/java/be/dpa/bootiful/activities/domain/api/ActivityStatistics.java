@@ -0,0 +1,26 @@
+package be.dpa.bootiful.activities.domain.api;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.Map;
+
+/**
+ * Activity statistics.
+ *
+ * @author denis
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class ActivityStatistics extends RepresentationModel<ActivityStatistics> {
+
+    private long noOfActivities;
+
+    private Map<String, Long> activitiesPerType;
+
+    // The participants enrolled in the activities of a type
+    private Map<String, Long> participantsPerType;
+
+    private Map<Integer, Long> activitiesPerNoOfParticipants;
+}
@@ -0,0 +1,14 @@
+package be.dpa.bootiful.activities.domain.api;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.Optional;
+
+/**
+ * A page or slice of activities and its tag, the tag changes with any of its activities or its totals. The activities
+ * are left out in case the caller already has the page with this tag.
+ *
+ * @author denis
+ */
+public record TaggedActivities(String tag,
+                               Optional<Slice<Activity>> activities) {}
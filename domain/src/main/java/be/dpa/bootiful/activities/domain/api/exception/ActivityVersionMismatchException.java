@@ -0,0 +1,12 @@
+package be.dpa.bootiful.activities.domain.api.exception;
+
+/**
+ * Activity version mismatch exception, the activity has been changed or deleted in the meantime.
+ *
+ * @author denis
+ */
+public class ActivityVersionMismatchException extends Exception {
+    public ActivityVersionMismatchException(String message) {
+        super(message);
+    }
+}
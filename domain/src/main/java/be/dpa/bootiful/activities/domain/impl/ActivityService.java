@@ -2,24 +2,36 @@ package be.dpa.bootiful.activities.domain.impl;
 
 import be.dpa.bootiful.activities.domain.api.Activity;
 import be.dpa.bootiful.activities.domain.api.ActivityRequest;
+import be.dpa.bootiful.activities.domain.api.ActivityStatistics;
 import be.dpa.bootiful.activities.domain.api.Participant;
 import be.dpa.bootiful.activities.domain.api.ParticipantRequest;
+import be.dpa.bootiful.activities.domain.api.TaggedActivities;
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
 import be.dpa.bootiful.activities.domain.api.exception.InvalidParticipantException;
 import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import be.dpa.bootiful.activities.domain.impl.mapper.ActivityMapper;
 import be.dpa.bootiful.activities.domain.impl.mapper.ParticipantMapper;
+import be.dpa.bootiful.activities.domain.spi.ActivityDeleteResult;
 import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
 import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import be.dpa.bootiful.activities.domain.spi.ActivitySaveResult;
 import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
+import be.dpa.bootiful.activities.domain.spi.ParticipantSaveResult;
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Activity service.
@@ -36,12 +48,66 @@ public class ActivityService implements be.dpa.bootiful.activities.domain.api.Ac
 
     private final ActivityRepository activityRepository;
 
+    private final ActivityViewCache activityViewCache;
+
+    private final ActivityStatisticsCounters activityStatisticsCounters;
+
+    private Optional<ActivityRecord> getActivityRecordBy(String activityAk) {
+        return activityViewCache.get(activityAk, activityRepository::getBy);
+    }
+
     @Override
     public Page<Activity> getActivities(Optional<String> search, int page, int size) {
         Page<ActivityRecord> activityRecords = activityRepository.getAll(search, page, size);
         return activityRecords.map(activityMapper::toActivityResponse);
     }
 
+    @Override
+    public Window<Activity> getActivities(Optional<String> search, ScrollPosition position, int size) {
+        Window<ActivityRecord> activityRecords = activityRepository.getAll(search, position, size);
+        return activityRecords.map(activityMapper::toActivityResponse);
+    }
+
+    @Override
+    public Slice<Activity> getActivitySlice(Optional<String> search, int page, int size) {
+        Slice<ActivityRecord> activityRecords = activityRepository.getSlice(search, page, size);
+        return activityRecords.map(activityMapper::toActivityResponse);
+    }
+
+    private static String toTag(Slice<ActivityRecord> activityRecords) {
+        // A slice does not know the total, only whether there is a next page
+        StringBuilder state = new StringBuilder().append(activityRecords instanceof Page<ActivityRecord> recordPage
+                ? recordPage.getTotalElements() : activityRecords.hasNext());
+        for (ActivityRecord activityRecord : activityRecords.getContent()) {
+            state.append('/').append(activityRecord.alternateKey()).append(':').append(activityRecord.version());
+        }
+        return DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public TaggedActivities getTaggedActivities(Optional<String> search, int page, int size, boolean count,
+                                                Predicate<String> isKnown) {
+        Slice<ActivityRecord> activityRecords = count
+                ? activityRepository.getAll(search, page, size) : activityRepository.getSlice(search, page, size);
+        String tag = toTag(activityRecords);
+        // Tagged from the keys and versions of the records, a page the caller already has is never mapped
+        if (activityRecords.hasContent() && isKnown.test(tag)) {
+            return new TaggedActivities(tag, Optional.empty());
+        }
+        return new TaggedActivities(tag, Optional.of(activityRecords.map(activityMapper::toActivityResponse)));
+    }
+
+    @Override
+    public void exportActivities(Optional<String> search, Consumer<Activity> consumer) {
+        activityRepository.exportAll(search,
+                activityRecord -> consumer.accept(activityMapper.toActivityResponse(activityRecord)));
+    }
+
+    @Override
+    public ActivityStatistics getActivityStatistics() {
+        return activityStatisticsCounters.getStatistics();
+    }
+
     @Override
     public Page<Participant> getActivityParticipants(String activityAk, int page, int size) {
         Page<ParticipantRecord> participantRecords =
@@ -49,9 +115,15 @@ public class ActivityService implements be.dpa.bootiful.activities.domain.api.Ac
         return participantRecords.map(participantMapper::toParticipant);
     }
 
+    @Override
+    public Slice<Participant> getActivityParticipantSlice(String activityAk, int page, int size) {
+        Slice<ParticipantRecord> participantRecords = activityRepository.getParticipantSliceBy(activityAk, page, size);
+        return participantRecords.map(participantMapper::toParticipant);
+    }
+
     @Override
     public Activity getActivityBy(String activityAk) throws ActivityNotFoundException {
-        Optional<ActivityRecord> optFound = activityRepository.getBy(activityAk);
+        Optional<ActivityRecord> optFound = getActivityRecordBy(activityAk);
         if (!optFound.isPresent()) {
             throw new ActivityNotFoundException(
                     String.format("Could not find an activity for the alternate key %s", activityAk));
@@ -59,39 +131,74 @@ public class ActivityService implements be.dpa.bootiful.activities.domain.api.Ac
         return activityMapper.toActivityResponse(optFound.get());
     }
 
-    private Activity save(String alternateKey, ActivityRequest activityRequest) {
+    @Override
+    public long getActivityVersion(String activityAk) throws ActivityNotFoundException {
+        Optional<ActivityRecord> optFound = getActivityRecordBy(activityAk);
+        if (!optFound.isPresent()) {
+            throw new ActivityNotFoundException(
+                    String.format("Could not find an activity for the alternate key %s", activityAk));
+        }
+        return optFound.get().version();
+    }
+
+    private void count(ActivitySaveResult saveResult) {
+        if (saveResult.created()) {
+            activityStatisticsCounters.added(saveResult.activity());
+        } else {
+            activityStatisticsCounters.changed(saveResult.previous(), saveResult.activity(),
+                    saveResult.noOfEnrolled());
+        }
+    }
+
+    private ActivitySaveResult save(String alternateKey, ActivityRequest activityRequest) {
         ActivityRecord activityRecord = activityMapper.toActivityRecord(activityRequest, alternateKey);
-        return activityMapper.toActivityResponse(activityRepository.save(activityRecord));
+        ActivitySaveResult saveResult = activityRepository.save(activityRecord);
+        count(saveResult);
+        return saveResult;
     }
 
     @Override
     public Activity newActivity(ActivityRequest activityRequest) {
-        return save(UUID.randomUUID().toString(), activityRequest);
+        return activityMapper.toActivityResponse(save(UUID.randomUUID().toString(), activityRequest).activity());
     }
 
     @Override
     public Activity updateActivity(String activityAk, ActivityRequest activityRequest) {
-        return save(activityAk, activityRequest);
+        ActivitySaveResult saveResult = save(activityAk, activityRequest);
+        // A created activity cannot be cached, missing activities never are
+        if (!saveResult.created()) {
+            activityViewCache.evict(activityAk);
+        }
+        return activityMapper.toActivityResponse(saveResult.activity());
+    }
+
+    @Override
+    public Activity updateActivity(String activityAk, ActivityRequest activityRequest, long expectedVersion)
+            throws ActivityVersionMismatchException {
+        ActivityRecord activityRecord = activityMapper.toActivityRecord(activityRequest, activityAk);
+        Optional<ActivitySaveResult> optUpdated = activityRepository.update(activityRecord, expectedVersion);
+        if (!optUpdated.isPresent()) {
+            throw new ActivityVersionMismatchException(String.format("The activity with the alternate key %s"
+                    + " does not have the version %d", activityAk, expectedVersion));
+        }
+        count(optUpdated.get());
+        activityViewCache.evict(activityAk);
+        return activityMapper.toActivityResponse(optUpdated.get().activity());
     }
 
     @Override
     public void deleteActivity(String activityAk) throws ActivityNotFoundException {
-        long rowsAffected = activityRepository.delete(activityAk);
-        if (rowsAffected == 0L) {
+        Optional<ActivityDeleteResult> optDeleted = activityRepository.delete(activityAk);
+        activityViewCache.evict(activityAk);
+        if (!optDeleted.isPresent()) {
             throw new ActivityNotFoundException(
                     String.format("Could not find an activity for the alternate key %s", activityAk));
         }
-    }
-
-    private boolean participantExists(List<ParticipantRecord> activityParticipants,
-                                      ParticipantRequest participantRequest) {
-        return activityParticipants.stream().anyMatch(activityParticipant ->
-                StringUtils.equals(activityParticipant.firstName(), participantRequest.getFirstName())
-                && StringUtils.equals(activityParticipant.lastName(), participantRequest.getLastName()));
+        activityStatisticsCounters.removed(optDeleted.get().activity(), optDeleted.get().noOfEnrolled());
     }
 
     private void validateActivity(String activityAk) throws ActivityNotFoundException {
-        Optional<ActivityRecord> activityRecord = activityRepository.getBy(activityAk);
+        Optional<ActivityRecord> activityRecord = getActivityRecordBy(activityAk);
         if (!activityRecord.isPresent()) {
             throw new ActivityNotFoundException(
                     String.format("Could not find an activity for the alternate key %s", activityAk));
@@ -101,25 +208,29 @@ public class ActivityService implements be.dpa.bootiful.activities.domain.api.Ac
     @Override
     public Participant newParticipant(String activityAk, ParticipantRequest participantRequest)
         throws ActivityNotFoundException, InvalidParticipantException {
-        validateActivity(activityAk);
-        List<ParticipantRecord> activityParticipants = activityRepository.getParticipantsBy(activityAk);
-        if (participantExists(activityParticipants, participantRequest)) {
+        ParticipantRecord participantRecord = participantMapper.toParticipantRecord(participantRequest);
+        Optional<ParticipantSaveResult> optSaved;
+        try {
+            optSaved = activityRepository.newParticipant(activityAk, participantRecord);
+        } catch (DuplicateParticipantException e) {
             throw new InvalidParticipantException(String.format("The participant %s %s already exists",
                     participantRequest.getFirstName(), participantRequest.getLastName()));
         }
-
-        ParticipantRecord participantRecord = participantMapper.toParticipantRecord(participantRequest);
-        return participantMapper.toParticipant(activityRepository.newParticipant(activityAk, participantRecord));
+        if (!optSaved.isPresent()) {
+            throw new ActivityNotFoundException(
+                    String.format("Could not find an activity for the alternate key %s", activityAk));
+        }
+        activityStatisticsCounters.enrolled(optSaved.get().activity());
+        return participantMapper.toParticipant(optSaved.get().participant());
     }
 
     @Override
     public Participant getParticipantBy(String activityAk, String participantAk)
             throws ActivityNotFoundException, ParticipantNotFoundException {
-        validateActivity(activityAk);
-        List<ParticipantRecord> participants = activityRepository.getParticipantsBy(activityAk);
-        Optional<ParticipantRecord> participantRecord =
-                participants.stream().filter(p -> StringUtils.equals(p.alternateKey(), participantAk)).findFirst();
+        Optional<ParticipantRecord> participantRecord = activityRepository.getParticipantBy(activityAk, participantAk);
         if (!participantRecord.isPresent()) {
+            // Only look at the activity when needed to tell a missing activity from a missing participant
+            validateActivity(activityAk);
             throw new ParticipantNotFoundException(
                     String.format("Could not find participant for alternate key %s", participantAk));
         }
@@ -0,0 +1,141 @@
+package be.dpa.bootiful.activities.domain.impl;
+
+import be.dpa.bootiful.activities.domain.api.ActivityStatistics;
+import be.dpa.bootiful.activities.domain.spi.ActivitiesImportedEvent;
+import be.dpa.bootiful.activities.domain.spi.ActivityCountRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory activity counters, counted once at startup and kept up to date by every write afterwards. Reading the
+ * statistics thus only takes the number of types and of distinct numbers of participants. The participants per type
+ * are the enrolled ones, not the number of participants the activities ask for.
+ *
+ * @author denis
+ */
+@Component
+@RequiredArgsConstructor
+public class ActivityStatisticsCounters {
+
+    private final ActivityRepository activityRepository;
+
+    private final LongAdder noOfActivities = new LongAdder();
+
+    private final Map<String, LongAdder> activitiesPerType = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> participantsPerType = new ConcurrentHashMap<>();
+
+    private final Map<Integer, LongAdder> activitiesPerNoOfParticipants = new ConcurrentHashMap<>();
+
+    private static <K> void add(Map<K, LongAdder> counters, K key, long delta) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    private static <K> Map<K, Long> toMap(Map<K, LongAdder> counters) {
+        Map<K, Long> values = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long value = counter.sum();
+            // Keys are never removed from the counters, leave out the ones at zero
+            if (value != 0L) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    private void count(String type, int noOfParticipants, long count, long noOfEnrolled) {
+        noOfActivities.add(count);
+        add(activitiesPerType, type, count);
+        add(participantsPerType, type, noOfEnrolled);
+        add(activitiesPerNoOfParticipants, noOfParticipants, count);
+    }
+
+    /**
+     * Counts the stored activities, before the application accepts any request or imports any activity.
+     */
+    @PostConstruct
+    public void rebuild() {
+        noOfActivities.reset();
+        activitiesPerType.clear();
+        participantsPerType.clear();
+        activitiesPerNoOfParticipants.clear();
+        for (ActivityCountRecord activityCount : activityRepository.countActivities()) {
+            count(activityCount.type(), activityCount.noOfParticipants(), activityCount.count(),
+                    activityCount.noOfEnrolled());
+        }
+    }
+
+    /**
+     * Counts an activity which has been created.
+     *
+     * @param activity the created activity
+     */
+    public void added(ActivityRecord activity) {
+        count(activity.type(), activity.noOfParticipants(), 1L, 0L);
+    }
+
+    /**
+     * Counts an activity which has been updated, its enrolled participants move along in case its type changed.
+     *
+     * @param previous     the activity before the update
+     * @param activity     the updated activity
+     * @param noOfEnrolled the number of participants enrolled in the activity
+     */
+    public void changed(ActivityRecord previous, ActivityRecord activity, long noOfEnrolled) {
+        removed(previous, noOfEnrolled);
+        count(activity.type(), activity.noOfParticipants(), 1L, noOfEnrolled);
+    }
+
+    /**
+     * Counts an activity which has been deleted along with its participants.
+     *
+     * @param activity     the deleted activity
+     * @param noOfEnrolled the number of participants which were enrolled in the activity
+     */
+    public void removed(ActivityRecord activity, long noOfEnrolled) {
+        count(activity.type(), activity.noOfParticipants(), -1L, -noOfEnrolled);
+    }
+
+    /**
+     * Counts a participant which has been enrolled in an activity.
+     *
+     * @param activity the activity of the participant
+     */
+    public void enrolled(ActivityRecord activity) {
+        add(participantsPerType, activity.type(), 1L);
+    }
+
+    /**
+     * Counts the imported activities once their import has been committed.
+     *
+     * @param event the imported activities
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActivitiesImported(ActivitiesImportedEvent event) {
+        event.activities().forEach(this::added);
+    }
+
+    /**
+     * Gets the current statistics. They are not a consistent snapshot while writes are going on, every counter is
+     * read once though.
+     *
+     * @return the activity statistics
+     */
+    public ActivityStatistics getStatistics() {
+        ActivityStatistics activityStatistics = new ActivityStatistics();
+        activityStatistics.setNoOfActivities(noOfActivities.sum());
+        activityStatistics.setActivitiesPerType(toMap(activitiesPerType));
+        activityStatistics.setParticipantsPerType(toMap(participantsPerType));
+        activityStatistics.setActivitiesPerNoOfParticipants(toMap(activitiesPerNoOfParticipants));
+        return activityStatistics;
+    }
+}
@@ -0,0 +1,79 @@
+package be.dpa.bootiful.activities.domain.impl;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the activities by their alternate key. It holds the immutable activity records,
+ * every request still gets its own activity to add its links to.
+ *
+ * @author denis
+ */
+@Component
+public class ActivityViewCache {
+
+    /**
+     * The name of the cache in the metrics.
+     */
+    public static final String CACHE_NAME = "activity.views";
+
+    // Rough size of a record and its strings apart from their characters
+    private static final int RECORD_OVERHEAD = 128;
+
+    private final Cache<String, ActivityRecord> activityRecords;
+
+    /**
+     * Creates the activity view cache.
+     *
+     * @param maximumWeight the approximate number of bytes the cached activities may take
+     * @param timeToLive    how long an activity is cached at most, a safety net for changes bypassing the service
+     */
+    public ActivityViewCache(@Value("${activity.view-cache.maximum-weight:10000000}") long maximumWeight,
+                             @Value("${activity.view-cache.time-to-live:10m}") Duration timeToLive) {
+        this.activityRecords = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(ActivityViewCache::weigh)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, activityRecords, CACHE_NAME);
+    }
+
+    private static int weigh(String alternateKey, ActivityRecord activityRecord) {
+        return RECORD_OVERHEAD + 2 * (alternateKey.length() + length(activityRecord.externalKey())
+                + length(activityRecord.action()) + length(activityRecord.type()) + length(activityRecord.details()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Gets the activity for the alternate key, loading and caching it on a miss. A missing activity is not cached.
+     *
+     * @param alternateKey the alternate key of the activity
+     * @param loader       loads the activity on a miss
+     * @return the activity or an empty optional
+     */
+    public Optional<ActivityRecord> get(String alternateKey, Function<String, Optional<ActivityRecord>> loader) {
+        return Optional.ofNullable(activityRecords.get(alternateKey, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Evicts the activity for the alternate key, to be called once its change has been committed.
+     *
+     * @param alternateKey the alternate key of the activity
+     */
+    public void evict(String alternateKey) {
+        activityRecords.invalidate(alternateKey);
+    }
+}
@@ -19,5 +19,6 @@ public interface ActivityMapper {
 
     @Mapping(target = "alternateKey", expression = "java(alternateKey)")
     @Mapping(target = "externalKey", ignore = true)
+    @Mapping(target = "version", ignore = true)
     ActivityRecord toActivityRecord(ActivityRequest activityRequest, @Context String alternateKey);
 }
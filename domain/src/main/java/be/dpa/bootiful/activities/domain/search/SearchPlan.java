@@ -0,0 +1,44 @@
+package be.dpa.bootiful.activities.domain.search;
+
+import cz.jirutka.rsql.parser.ast.Node;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A parsed search filter (FIQL) together with what has been compiled from it, f.e. its validated fields
+ * or its JPA specification. The parsed nodes are immutable, so a plan can be shared by concurrent requests.
+ *
+ * @author denis
+ */
+public final class SearchPlan {
+
+    @Getter
+    private final String search;
+
+    @Getter
+    private final Node rootNode;
+
+    private final Map<Object, Object> compiled = new ConcurrentHashMap<>();
+
+    SearchPlan(String search, Node rootNode) {
+        this.search = search;
+        this.rootNode = rootNode;
+    }
+
+    /**
+     * Gets what has been compiled from the root node for the passed key, compiling it on first access.
+     * The compiled result has to be immutable or at least safe to share between threads.
+     *
+     * @param key      the key of the compiled result, f.e. the class compiling it
+     * @param compiler compiles the root node
+     * @param <T>      the type of the compiled result
+     * @return the compiled result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T compile(Object key, Function<Node, T> compiler) {
+        return (T) compiled.computeIfAbsent(key, k -> compiler.apply(rootNode));
+    }
+}
@@ -0,0 +1,70 @@
+package be.dpa.bootiful.activities.domain.search;
+
+import cz.jirutka.rsql.parser.RSQLParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses every search filter (FIQL) only once, the validation of a request and the search in the repository
+ * share the resulting plan. The least recently used plans are evicted once the cache is full.
+ *
+ * @author denis
+ */
+@Component
+public class SearchPlanCache {
+
+    private final RSQLParser rsqlParser = new RSQLParser();
+
+    private final Map<String, SearchPlan> plans;
+
+    /**
+     * Creates a search plan cache.
+     *
+     * @param maxSize the maximum number of cached search plans
+     */
+    public SearchPlanCache(@Value("${activity.search.plan-cache-size:256}") int maxSize) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchPlan> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the plan of the passed search filter, parsing it if it is not cached yet.
+     *
+     * @param search the search filter
+     * @return the search plan
+     * @throws cz.jirutka.rsql.parser.RSQLParserException in case the search filter is invalid
+     */
+    public SearchPlan getPlan(String search) {
+        String normalized = search.strip();
+        synchronized (plans) {
+            SearchPlan plan = plans.get(normalized);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        // Parse outside the lock, two requests racing for the same filter merely parse it twice
+        SearchPlan plan = new SearchPlan(normalized, rsqlParser.parse(normalized));
+        synchronized (plans) {
+            SearchPlan cached = plans.putIfAbsent(normalized, plan);
+            return cached != null ? cached : plan;
+        }
+    }
+
+    /**
+     * Gets the number of cached search plans.
+     *
+     * @return the number of cached search plans
+     */
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+import java.util.List;
+
+/**
+ * Published by the activity import repository for the activities it has imported.
+ *
+ * @author denis
+ */
+public record ActivitiesImportedEvent(List<ActivityRecord> activities) {}
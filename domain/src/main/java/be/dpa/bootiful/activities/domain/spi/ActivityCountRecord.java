@@ -0,0 +1,12 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+/**
+ * The number of activities having a type and a number of participants, and the number of participants enrolled in
+ * them.
+ *
+ * @author denis
+ */
+public record ActivityCountRecord(String type,
+                                  int noOfParticipants,
+                                  long count,
+                                  long noOfEnrolled) {}
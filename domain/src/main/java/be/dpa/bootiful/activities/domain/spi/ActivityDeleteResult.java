@@ -0,0 +1,9 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+/**
+ * The result of deleting an activity record.
+ *
+ * @author denis
+ */
+public record ActivityDeleteResult(ActivityRecord activity,
+                                   long noOfEnrolled) {}
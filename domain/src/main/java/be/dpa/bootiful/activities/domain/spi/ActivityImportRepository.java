@@ -1,5 +1,7 @@
 package be.dpa.bootiful.activities.domain.spi;
 
+import java.util.Collection;
+
 /**
  * Activity import repository.
  *
@@ -13,4 +15,12 @@ public interface ActivityImportRepository {
      * @param activityRecord the activity record to import
      */
     void importActivity(ActivityRecord activityRecord);
+
+    /**
+     * Imports the passed activity records, skipping the ones whose external key is already known.
+     *
+     * @param activityRecords the activity records to import
+     * @return the number of imported and skipped activities and of generated participants
+     */
+    ActivityImportResult importActivities(Collection<ActivityRecord> activityRecords);
 }
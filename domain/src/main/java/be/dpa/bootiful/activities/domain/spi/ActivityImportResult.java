@@ -0,0 +1,11 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+/**
+ * The result of importing a batch of activity records.
+ *
+ * @author denis
+ */
+public record ActivityImportResult(int received,
+                                   int imported,
+                                   int skipped,
+                                   int participants) {}
@@ -10,5 +10,6 @@ public record ActivityRecord(String alternateKey,
                              String action,
                              String type,
                              int noOfParticipants,
-                             String details) {}
+                             String details,
+                             long version) {}
 
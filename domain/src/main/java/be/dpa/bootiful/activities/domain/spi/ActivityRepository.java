@@ -1,9 +1,14 @@
 package be.dpa.bootiful.activities.domain.spi;
 
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The activity repository providing access to the secondary adapter storage infrastructure.
@@ -14,15 +19,85 @@ public interface ActivityRepository {
 
     Page<ActivityRecord> getAll(Optional<String> search, int page, int size);
 
+    Window<ActivityRecord> getAll(Optional<String> search, ScrollPosition position, int size);
+
+    /**
+     * Gets a page of activities without counting all of them, it only knows whether there is a next page.
+     *
+     * @param search an optional search string
+     * @param page   the page index
+     * @param size   the page size
+     * @return the slice of activities
+     */
+    Slice<ActivityRecord> getSlice(Optional<String> search, int page, int size);
+
     Optional<ActivityRecord> getBy(String alternateKey);
 
+    /**
+     * Passes every activity matching the search to the consumer without paging them.
+     *
+     * @param search   an optional search string
+     * @param consumer the consumer of the activities
+     */
+    void exportAll(Optional<String> search, Consumer<ActivityRecord> consumer);
+
     Page<ParticipantRecord> getParticipantsBy(String alternateKey, int page, int size);
 
-    List<ParticipantRecord> getParticipantsBy(String alternateKey);
+    /**
+     * Gets a page of participants of an activity without counting all of them.
+     *
+     * @param alternateKey the alternate key of the activity
+     * @param page         the page index
+     * @param size         the page size
+     * @return the slice of participants
+     */
+    Slice<ParticipantRecord> getParticipantSliceBy(String alternateKey, int page, int size);
+
+    Optional<ParticipantRecord> getParticipantBy(String alternateKey, String participantAk);
+
+    /**
+     * Enrolls a new participant in an activity.
+     *
+     * @param alternateKey      the alternate key of the activity
+     * @param participantRecord the participant to enroll
+     * @return the enrolled participant and its activity or an empty optional in case there is no activity
+     * @throws DuplicateParticipantException in case the activity already has a participant with the same name
+     */
+    Optional<ParticipantSaveResult> newParticipant(String alternateKey, ParticipantRecord participantRecord)
+            throws DuplicateParticipantException;
+
+    /**
+     * Saves an activity, creating it if there is none for its alternate key yet and updating it otherwise.
+     *
+     * @param activity the activity to save
+     * @return the stored activity, the previous one in case it has been updated and its number of enrolled
+     *         participants
+     */
+    ActivitySaveResult save(ActivityRecord activity);
 
-    ParticipantRecord newParticipant(String alternateKey, ParticipantRecord participantRecord);
+    /**
+     * Updates an activity unless it has been changed since it had the expected version.
+     *
+     * @param activity        the activity to update
+     * @param expectedVersion the version the activity is expected to still have
+     * @return the updated and the previous activity and its number of enrolled participants or an empty optional
+     *         in case there is no activity with the expected version
+     */
+    Optional<ActivitySaveResult> update(ActivityRecord activity, long expectedVersion);
 
-    ActivityRecord save(ActivityRecord activity);
+    /**
+     * Deletes an activity and its participants.
+     *
+     * @param alternateKey the alternate key of the activity
+     * @return the deleted activity and its number of enrolled participants or an empty optional in case there was
+     *         none
+     */
+    Optional<ActivityDeleteResult> delete(String alternateKey);
 
-    long delete(String alternateKey);
+    /**
+     * Counts the activities and the participants enrolled in them per type and number of participants.
+     *
+     * @return the activity counts
+     */
+    List<ActivityCountRecord> countActivities();
 }
@@ -0,0 +1,20 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+/**
+ * The result of saving an activity record.
+ *
+ * @author denis
+ */
+public record ActivitySaveResult(ActivityRecord activity,
+                                 ActivityRecord previous,
+                                 long noOfEnrolled) {
+
+    /**
+     * Whether the activity has been created rather than updated.
+     *
+     * @return true in case there was no previous activity
+     */
+    public boolean created() {
+        return previous == null;
+    }
+}
@@ -0,0 +1,9 @@
+package be.dpa.bootiful.activities.domain.spi;
+
+/**
+ * The result of enrolling a participant in an activity.
+ *
+ * @author denis
+ */
+public record ParticipantSaveResult(ParticipantRecord participant,
+                                    ActivityRecord activity) {}
@@ -0,0 +1,12 @@
+package be.dpa.bootiful.activities.domain.spi.exception;
+
+/**
+ * Duplicate participant exception.
+ *
+ * @author denis
+ */
+public class DuplicateParticipantException extends Exception {
+    public DuplicateParticipantException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
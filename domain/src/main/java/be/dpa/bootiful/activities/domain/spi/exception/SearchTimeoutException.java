@@ -0,0 +1,12 @@
+package be.dpa.bootiful.activities.domain.spi.exception;
+
+/**
+ * Search timeout exception, the search took longer than the database allows a single query to take.
+ *
+ * @author denis
+ */
+public class SearchTimeoutException extends RuntimeException {
+    public SearchTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,16 +1,42 @@
 package be.dpa.bootiful.activities.domain.impl;
 
+import be.dpa.bootiful.activities.domain.api.Activity;
+import be.dpa.bootiful.activities.domain.api.ActivityRequest;
+import be.dpa.bootiful.activities.domain.api.ActivityStatistics;
+import be.dpa.bootiful.activities.domain.api.Participant;
+import be.dpa.bootiful.activities.domain.api.ParticipantRequest;
+import be.dpa.bootiful.activities.domain.api.TaggedActivities;
 import be.dpa.bootiful.activities.domain.api.exception.ActivityNotFoundException;
+import be.dpa.bootiful.activities.domain.api.exception.ActivityVersionMismatchException;
+import be.dpa.bootiful.activities.domain.api.exception.InvalidParticipantException;
+import be.dpa.bootiful.activities.domain.api.exception.ParticipantNotFoundException;
 import be.dpa.bootiful.activities.domain.impl.mapper.ActivityMapper;
 import be.dpa.bootiful.activities.domain.impl.mapper.ParticipantMapper;
+import be.dpa.bootiful.activities.domain.spi.ActivityCountRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityDeleteResult;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
 import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import be.dpa.bootiful.activities.domain.spi.ActivitySaveResult;
+import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
+import be.dpa.bootiful.activities.domain.spi.ParticipantSaveResult;
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -19,6 +45,8 @@ public class ActivityServiceTest {
 
     private static final String AK_BIKE = "BIKE";
 
+    private static final String AK_TOM_BOLA = "TOMBOLA";
+
     @Mock
     private ActivityMapper activityMapper;
 
@@ -28,20 +56,187 @@ public class ActivityServiceTest {
     @Mock
     private ActivityRepository activityRepository;
 
+    private final ActivityViewCache activityViewCache = new ActivityViewCache(10_000L, Duration.ofMinutes(1));
+
+    private ActivityService newActivityService() {
+        return new ActivityService(activityMapper, participantMapper, activityRepository, activityViewCache,
+                new ActivityStatisticsCounters(activityRepository));
+    }
+
     @Test
     public void testDeleteActivity() throws ActivityNotFoundException {
-        when(activityRepository.delete(eq(AK_BIKE))).thenReturn(1L);
-        ActivityService activityService = new ActivityService(activityMapper, participantMapper, activityRepository);
+        when(activityRepository.delete(eq(AK_BIKE)))
+                .thenReturn(Optional.of(new ActivityDeleteResult(
+                        new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L), 0L)));
+        ActivityService activityService = newActivityService();
         activityService.deleteActivity(AK_BIKE);
         verify(activityRepository).delete(eq(AK_BIKE));
     }
 
     @Test
     public void testDeleteActivityNotFound() throws ActivityNotFoundException {
-        when(activityRepository.delete(eq(AK_BIKE))).thenReturn(0L);
-        ActivityService activityService = new ActivityService(activityMapper, participantMapper, activityRepository);
+        when(activityRepository.delete(eq(AK_BIKE))).thenReturn(Optional.empty());
+        ActivityService activityService = newActivityService();
         Assertions.assertThrows(ActivityNotFoundException.class, () -> {
             activityService.deleteActivity(AK_BIKE);
         });
     }
+
+    @Test
+    public void testGetParticipant() throws ActivityNotFoundException, ParticipantNotFoundException {
+        ParticipantRecord participantRecord = new ParticipantRecord(AK_TOM_BOLA, "Tom", "Bola");
+        Participant participant = new Participant();
+        when(activityRepository.getParticipantBy(eq(AK_BIKE), eq(AK_TOM_BOLA))).thenReturn(Optional.of(participantRecord));
+        when(participantMapper.toParticipant(eq(participantRecord))).thenReturn(participant);
+        ActivityService activityService = newActivityService();
+        Assertions.assertSame(participant, activityService.getParticipantBy(AK_BIKE, AK_TOM_BOLA));
+        verify(activityRepository, never()).getBy(eq(AK_BIKE));
+    }
+
+    @Test
+    public void testGetParticipantNotFound() {
+        when(activityRepository.getParticipantBy(eq(AK_BIKE), eq(AK_TOM_BOLA))).thenReturn(Optional.empty());
+        when(activityRepository.getBy(eq(AK_BIKE)))
+                .thenReturn(Optional.of(new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L)));
+        ActivityService activityService = newActivityService();
+        Assertions.assertThrows(ParticipantNotFoundException.class, () -> {
+            activityService.getParticipantBy(AK_BIKE, AK_TOM_BOLA);
+        });
+    }
+
+    @Test
+    public void testGetParticipantActivityNotFound() {
+        when(activityRepository.getParticipantBy(eq(AK_BIKE), eq(AK_TOM_BOLA))).thenReturn(Optional.empty());
+        when(activityRepository.getBy(eq(AK_BIKE))).thenReturn(Optional.empty());
+        ActivityService activityService = newActivityService();
+        Assertions.assertThrows(ActivityNotFoundException.class, () -> {
+            activityService.getParticipantBy(AK_BIKE, AK_TOM_BOLA);
+        });
+    }
+
+    @Test
+    public void testNewDuplicateParticipant() throws DuplicateParticipantException {
+        when(activityRepository.newParticipant(eq(AK_BIKE), any()))
+                .thenThrow(new DuplicateParticipantException("Duplicate", null));
+        ActivityService activityService = newActivityService();
+        Assertions.assertThrows(InvalidParticipantException.class, () -> {
+            activityService.newParticipant(AK_BIKE, new ParticipantRequest());
+        });
+    }
+
+    @Test
+    public void testNewParticipantActivityNotFound() throws DuplicateParticipantException {
+        when(activityRepository.newParticipant(eq(AK_BIKE), any())).thenReturn(Optional.empty());
+        ActivityService activityService = newActivityService();
+        Assertions.assertThrows(ActivityNotFoundException.class, () -> {
+            activityService.newParticipant(AK_BIKE, new ParticipantRequest());
+        });
+    }
+
+    @Test
+    public void testGetTaggedActivities() {
+        ActivityRecord activityRecord = new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L);
+        when(activityRepository.getAll(eq(Optional.empty()), eq(0), eq(1)))
+                .thenReturn(new PageImpl<>(List.of(activityRecord), PageRequest.of(0, 1), 1L));
+        when(activityMapper.toActivityResponse(eq(activityRecord))).thenReturn(new Activity());
+        ActivityService activityService = newActivityService();
+        TaggedActivities tagged = activityService.getTaggedActivities(Optional.empty(), 0, 1, true, tag -> false);
+        Assertions.assertEquals(1, tagged.activities().orElseThrow().getNumberOfElements());
+
+        TaggedActivities known = activityService.getTaggedActivities(Optional.empty(), 0, 1, true,
+                tagged.tag()::equals);
+        Assertions.assertEquals(tagged.tag(), known.tag());
+        Assertions.assertTrue(known.activities().isEmpty());
+        // A page the caller already has is not mapped again
+        verify(activityMapper, times(1)).toActivityResponse(eq(activityRecord));
+        verify(activityRepository, never()).getSlice(any(), any(Integer.class), any(Integer.class));
+    }
+
+    @Test
+    public void testGetActivityFromCache() throws ActivityNotFoundException {
+        ActivityRecord activityRecord = new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L);
+        when(activityRepository.getBy(eq(AK_BIKE))).thenReturn(Optional.of(activityRecord));
+        when(activityMapper.toActivityResponse(eq(activityRecord))).thenAnswer(invocation -> new Activity());
+        ActivityService activityService = newActivityService();
+        Activity first = activityService.getActivityBy(AK_BIKE);
+        Activity second = activityService.getActivityBy(AK_BIKE);
+        // Every request gets its own activity to add its links to
+        Assertions.assertNotSame(first, second);
+        verify(activityRepository, times(1)).getBy(eq(AK_BIKE));
+
+        when(activityRepository.delete(eq(AK_BIKE))).thenReturn(Optional.of(new ActivityDeleteResult(activityRecord, 0L)));
+        activityService.deleteActivity(AK_BIKE);
+        when(activityRepository.getBy(eq(AK_BIKE))).thenReturn(Optional.empty());
+        Assertions.assertThrows(ActivityNotFoundException.class, () -> activityService.getActivityBy(AK_BIKE));
+    }
+
+    @Test
+    public void testUpdateActivityEvictsCache() throws ActivityNotFoundException {
+        ActivityRecord activityRecord = new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L);
+        ActivityRecord updatedRecord = new ActivityRecord(AK_BIKE, null, "Ride fast", "outside", 1, null, 1L);
+        ActivityRequest activityRequest = new ActivityRequest();
+        when(activityRepository.getBy(eq(AK_BIKE))).thenReturn(Optional.of(activityRecord), Optional.of(updatedRecord));
+        when(activityMapper.toActivityRecord(eq(activityRequest), eq(AK_BIKE))).thenReturn(updatedRecord);
+        when(activityRepository.save(eq(updatedRecord)))
+                .thenReturn(new ActivitySaveResult(updatedRecord, activityRecord, 0L));
+        ActivityService activityService = newActivityService();
+        activityService.getActivityBy(AK_BIKE);
+        activityService.updateActivity(AK_BIKE, activityRequest);
+        activityService.getActivityBy(AK_BIKE);
+        verify(activityRepository, times(2)).getBy(eq(AK_BIKE));
+        verify(activityMapper, times(2)).toActivityResponse(eq(updatedRecord));
+    }
+
+    @Test
+    public void testUpdateActivityVersionMismatch() {
+        ActivityRecord activityRecord = new ActivityRecord(AK_BIKE, null, "Ride fast", "outside", 1, null, 0L);
+        ActivityRequest activityRequest = new ActivityRequest();
+        when(activityMapper.toActivityRecord(eq(activityRequest), eq(AK_BIKE))).thenReturn(activityRecord);
+        when(activityRepository.update(eq(activityRecord), eq(3L))).thenReturn(Optional.empty());
+        ActivityService activityService = newActivityService();
+        Assertions.assertThrows(ActivityVersionMismatchException.class, () ->
+                activityService.updateActivity(AK_BIKE, activityRequest, 3L));
+    }
+
+    @Test
+    public void testGetActivityStatistics() throws ActivityNotFoundException, InvalidParticipantException,
+            DuplicateParticipantException {
+        ActivityRecord bikeRecord = new ActivityRecord(AK_BIKE, null, "Ride", "outside", 1, null, 0L);
+        ActivityRecord carRecord = new ActivityRecord("CAR", null, "Drive", "outside", 4, null, 0L);
+        ActivityRecord updatedRecord = new ActivityRecord(AK_BIKE, null, "Ride", "sport", 2, null, 1L);
+        ActivityRequest activityRequest = new ActivityRequest();
+        when(activityRepository.countActivities()).thenReturn(List.of(new ActivityCountRecord("outside", 1, 2L, 3L),
+                new ActivityCountRecord("chill", 0, 1L, 0L)));
+        when(activityMapper.toActivityRecord(eq(activityRequest), any())).thenReturn(carRecord, updatedRecord);
+        when(activityRepository.save(eq(carRecord))).thenReturn(new ActivitySaveResult(carRecord, null, 0L));
+        when(activityRepository.save(eq(updatedRecord)))
+                .thenReturn(new ActivitySaveResult(updatedRecord, bikeRecord, 1L));
+        when(activityRepository.newParticipant(eq("CAR"), any()))
+                .thenReturn(Optional.of(new ParticipantSaveResult(new ParticipantRecord(AK_TOM_BOLA, "Tom", "Bola"),
+                        carRecord)));
+        when(activityRepository.delete(eq("CAR"))).thenReturn(Optional.of(new ActivityDeleteResult(carRecord, 1L)));
+        ActivityStatisticsCounters activityStatisticsCounters = new ActivityStatisticsCounters(activityRepository);
+        activityStatisticsCounters.rebuild();
+        ActivityService activityService = new ActivityService(activityMapper, participantMapper, activityRepository,
+                activityViewCache, activityStatisticsCounters);
+
+        activityService.newActivity(activityRequest);
+        activityService.updateActivity(AK_BIKE, activityRequest);
+        activityService.newParticipant("CAR", new ParticipantRequest());
+        ActivityStatistics activityStatistics = activityService.getActivityStatistics();
+        Assertions.assertEquals(4L, activityStatistics.getNoOfActivities());
+        Assertions.assertEquals(Map.of("chill", 1L, "outside", 2L, "sport", 1L),
+                activityStatistics.getActivitiesPerType());
+        // The participant enrolled in the updated activity moves along to its new type
+        Assertions.assertEquals(Map.of("outside", 3L, "sport", 1L), activityStatistics.getParticipantsPerType());
+        Assertions.assertEquals(Map.of(0, 1L, 1, 1L, 2, 1L, 4, 1L),
+                activityStatistics.getActivitiesPerNoOfParticipants());
+
+        activityService.deleteActivity("CAR");
+        activityStatistics = activityService.getActivityStatistics();
+        Assertions.assertEquals(3L, activityStatistics.getNoOfActivities());
+        Assertions.assertEquals(Map.of("chill", 1L, "outside", 1L, "sport", 1L),
+                activityStatistics.getActivitiesPerType());
+        Assertions.assertEquals(Map.of("outside", 2L, "sport", 1L), activityStatistics.getParticipantsPerType());
+    }
 }
@@ -0,0 +1,51 @@
+package be.dpa.bootiful.activities.domain.search;
+
+import cz.jirutka.rsql.parser.RSQLParserException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchPlanCacheTest {
+
+    @Test
+    public void testGetPlanParsesOnce() {
+        SearchPlanCache searchPlanCache = new SearchPlanCache(2);
+        SearchPlan plan = searchPlanCache.getPlan("type==sad");
+        assertSame(plan, searchPlanCache.getPlan(" type==sad "));
+        assertEquals("type==sad", plan.getSearch());
+        assertEquals(1, searchPlanCache.size());
+    }
+
+    @Test
+    public void testCompileOnce() {
+        SearchPlan plan = new SearchPlanCache(2).getPlan("type==sad");
+        AtomicInteger compilations = new AtomicInteger();
+        plan.compile(SearchPlanCacheTest.class, rootNode -> compilations.incrementAndGet());
+        plan.compile(SearchPlanCacheTest.class, rootNode -> compilations.incrementAndGet());
+        assertEquals(1, compilations.get());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        SearchPlanCache searchPlanCache = new SearchPlanCache(2);
+        SearchPlan sad = searchPlanCache.getPlan("type==sad");
+        SearchPlan sofa = searchPlanCache.getPlan("type==sofa");
+        searchPlanCache.getPlan("type==sad");
+        searchPlanCache.getPlan("type==busywork");
+        assertEquals(2, searchPlanCache.size());
+        assertSame(sad, searchPlanCache.getPlan("type==sad"));
+        assertNotSame(sofa, searchPlanCache.getPlan("type==sofa"));
+    }
+
+    @Test
+    public void testInvalidSearchIsNotCached() {
+        SearchPlanCache searchPlanCache = new SearchPlanCache(2);
+        assertThrows(RSQLParserException.class, () -> searchPlanCache.getPlan("type=="));
+        assertEquals(0, searchPlanCache.size());
+    }
+}
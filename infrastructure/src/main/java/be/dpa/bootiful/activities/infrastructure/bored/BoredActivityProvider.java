@@ -1,8 +1,10 @@
 package be.dpa.bootiful.activities.infrastructure.bored;
 
+import be.dpa.bootiful.activities.domain.spi.ActivityImportResult;
 import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
 import be.dpa.bootiful.activities.domain.spi.ActivityImportRepository;
 import be.dpa.bootiful.activities.infrastructure.bored.mapper.IBoredActivityRecordMapper;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,8 +14,18 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.IntStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Fetches bored activities and imports them using the corresponding activity repository.
@@ -26,6 +38,13 @@ import java.util.stream.IntStream;
 @EnableAsync
 public class BoredActivityProvider {
 
+    public static final String FETCHED_COUNTER = "activity.provider.fetched";
+
+    public static final String IMPORTED_COUNTER = "activity.provider.imported";
+
+    // How long the importer waits for a fetch before checking whether any more are to come
+    private static final long POLL_INTERVAL_MS = 100L;
+
     private final RestTemplate restTemplate;
 
     private final IBoredActivityRecordMapper boredActivityMapper;
@@ -38,16 +57,106 @@ public class BoredActivityProvider {
     @Value("${activity.provider.fetch:10}")
     private int fetchAmount;
 
-    private void fetch(int fetchIx) {
-        ResponseEntity<BoredActivityRecord> responseEntity = restTemplate.getForEntity(url, BoredActivityRecord.class);
-        ActivityRecord activity = boredActivityMapper.toActivityRecord(responseEntity.getBody(),
-                UUID.randomUUID().toString());
-        log.info("Importing bored activity with type '{}' and action '{}'", activity.type(), activity.action());
-        activityImportRepository.importActivity(activity);
+    @Value("${activity.provider.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${activity.provider.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${activity.provider.import-chunk-size:50}")
+    private int importChunkSize;
+
+    private Optional<ActivityRecord> fetchActivity() {
+        try {
+            ResponseEntity<BoredActivityRecord> responseEntity =
+                    restTemplate.getForEntity(url, BoredActivityRecord.class);
+            Metrics.counter(FETCHED_COUNTER, "outcome", "success").increment();
+            return Optional.of(boredActivityMapper.toActivityRecord(responseEntity.getBody(),
+                    UUID.randomUUID().toString()));
+        } catch (RuntimeException e) {
+            Metrics.counter(FETCHED_COUNTER, "outcome", "failure").increment();
+            log.warn("Failed to fetch a bored activity: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void fetchAndQueue(Semaphore inFlight, BlockingQueue<Optional<ActivityRecord>> fetched) {
+        Optional<ActivityRecord> result = Optional.empty();
+        try {
+            result = fetchActivity();
+        } finally {
+            try {
+                // Every fetch queues a result, even one failed by an error, the importer counts on it
+                fetched.put(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Released once queued, a slow importer thus holds back further fetches
+                inFlight.release();
+            }
+        }
+    }
+
+    private void submitFetches(ExecutorService executor, Semaphore inFlight,
+                               BlockingQueue<Optional<ActivityRecord>> fetched, AtomicInteger submitted) {
+        try {
+            for (int i = 0; i < fetchAmount; ++i) {
+                inFlight.acquire();
+                executor.submit(() -> fetchAndQueue(inFlight, fetched));
+                submitted.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void importActivities(List<ActivityRecord> activities) {
+        try {
+            ActivityImportResult result = activityImportRepository.importActivities(activities);
+            Metrics.counter(IMPORTED_COUNTER, "outcome", "imported").increment(result.imported());
+            Metrics.counter(IMPORTED_COUNTER, "outcome", "skipped").increment(result.skipped());
+            log.info("Imported {} of {} bored activities with {} participants, skipped {} already known",
+                    result.imported(), result.received(), result.participants(), result.skipped());
+        } catch (RuntimeException e) {
+            Metrics.counter(IMPORTED_COUNTER, "outcome", "failure").increment(activities.size());
+            log.error("Failed to import {} bored activities", activities.size(), e);
+        }
+    }
+
+    private int importChunk(BlockingQueue<Optional<ActivityRecord>> fetched, int remaining)
+            throws InterruptedException {
+        // Wait a while for the first result of the chunk, then take whatever else has been fetched meanwhile
+        Optional<ActivityRecord> first = fetched.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return 0;
+        }
+        List<Optional<ActivityRecord>> results = new ArrayList<>(importChunkSize);
+        results.add(first);
+        fetched.drainTo(results, Math.min(remaining, importChunkSize) - 1);
+        List<ActivityRecord> activities = results.stream().flatMap(Optional::stream).toList();
+        if (!activities.isEmpty()) {
+            importActivities(activities);
+        }
+        return results.size();
     }
 
+    /**
+     * Fetches the configured amount of bored activities on virtual threads and imports them as they arrive.
+     */
     @Async
     public void fetch() {
-        IntStream.range(0, fetchAmount).forEach(this::fetch);
+        BlockingQueue<Optional<ActivityRecord>> fetched = new ArrayBlockingQueue<>(queueCapacity);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            AtomicInteger submitted = new AtomicInteger();
+            Future<?> submitter = executor.submit(() -> submitFetches(executor, inFlight, fetched, submitted));
+            int taken = 0;
+            // A result per fetch until the submitter is done, from then on only one per submitted fetch
+            while (taken < (submitter.isDone() ? submitted.get() : fetchAmount)) {
+                taken += importChunk(fetched, fetchAmount - taken);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -25,6 +25,7 @@ public interface IBoredActivityRecordMapper {
     @Mapping(source = "participants", target = "noOfParticipants")
     @Mapping(source = "link", target = "details")
     @Mapping(target = "alternateKey", expression = "java(alternateKey)")
+    @Mapping(target = "version", ignore = true)
     ActivityRecord toActivityRecord(BoredActivityRecord boredActivity, @Context String alternateKey);
 
 }
@@ -0,0 +1,21 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+
+import java.util.Optional;
+
+/**
+ * Looks activities up by their natural id, the alternate key, through the second-level cache.
+ *
+ * @author denis
+ */
+public interface ActivityEntityNaturalIdRepository {
+
+    /**
+     * Finds an activity by its alternate key, only querying the database on a cache miss.
+     *
+     * @param alternateKey the alternate key of the activity
+     * @return the activity or an empty optional
+     */
+    Optional<ActivityEntity> findByAlternateKey(String alternateKey);
+}
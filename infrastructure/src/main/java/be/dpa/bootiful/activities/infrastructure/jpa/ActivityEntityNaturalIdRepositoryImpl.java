@@ -0,0 +1,28 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Natural id lookups of activities, the fragment takes precedence over a derived query of the same name.
+ *
+ * @author denis
+ */
+@RequiredArgsConstructor
+class ActivityEntityNaturalIdRepositoryImpl implements ActivityEntityNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ActivityEntity> findByAlternateKey(String alternateKey) {
+        // Resolves the id from the natural id cache and the activity from the entity cache
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(ActivityEntity.class)
+                .loadOptional(alternateKey);
+    }
+}
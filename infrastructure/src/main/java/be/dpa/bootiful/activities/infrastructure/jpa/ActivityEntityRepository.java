@@ -1,15 +1,24 @@
 package be.dpa.bootiful.activities.infrastructure.jpa;
 
+import be.dpa.bootiful.activities.domain.spi.ActivityCountRecord;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * The activity entity repository.
@@ -19,14 +28,35 @@ import java.util.Optional;
 @Repository
 public interface ActivityEntityRepository extends PagingAndSortingRepository<ActivityEntity, Long>,
         CrudRepository<ActivityEntity, Long>,
-        JpaSpecificationExecutor<ActivityEntity> {
+        JpaSpecificationExecutor<ActivityEntity>, ActivityEntityNaturalIdRepository, ActivityEntitySearchRepository {
+
+    /**
+     * The time in milliseconds a search and its count may take at most.
+     */
+    String SEARCH_TIMEOUT = "5000";
+
+    /**
+     * Searches the activities, cancelling the search or its count once they exceed the search timeout.
+     *
+     * @param specification the search specification
+     * @param pageable the page to get
+     * @return the page of activities
+     */
+    @Override
+    @QueryHints(@QueryHint(name = "jakarta.persistence.query.timeout", value = SEARCH_TIMEOUT))
+    Page<ActivityEntity> findAll(Specification<ActivityEntity> specification, Pageable pageable);
 
     Page<ActivityEntity> findByOrderByTypeAscActionAsc(Pageable pageable);
 
+    Slice<ActivityEntity> findSliceByOrderByTypeAscActionAsc(Pageable pageable);
+
     Optional<ActivityEntity> findByExternalKey(String externalKey);
 
-    Optional<ActivityEntity> findByAlternateKey(String alternateKey);
+    @Query("select a.externalKey from activity a where a.externalKey in ?1")
+    Set<String> findExternalKeys(Collection<String> externalKeys);
 
-    @Transactional
-    long deleteByAlternateKey(String alternateKey);
+    @Query("select new be.dpa.bootiful.activities.domain.spi.ActivityCountRecord(a.type, a.noOfParticipants,"
+            + " count(distinct a), count(ap)) from activity a left join ActivityParticipantEntity ap on ap.activity = a"
+            + " group by a.type, a.noOfParticipants")
+    List<ActivityCountRecord> countActivities();
 }
@@ -0,0 +1,35 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Consumer;
+
+/**
+ * Searches the activities without counting them.
+ *
+ * @author denis
+ */
+public interface ActivityEntitySearchRepository {
+
+    /**
+     * Gets a slice of the activities matching the specification, it knows whether there is a next one by fetching
+     * one activity more than asked for instead of counting all matching activities.
+     *
+     * @param specification the search specification
+     * @param pageable      the slice to get
+     * @return the slice of activities
+     */
+    Slice<ActivityEntity> findSlice(Specification<ActivityEntity> specification, Pageable pageable);
+
+    /**
+     * Passes every activity matching the specification to the consumer, ordered by id. The activities are
+     * detached right after they have been consumed, so memory stays constant regardless of their number.
+     *
+     * @param specification the search specification
+     * @param consumer      the consumer of the activities
+     */
+    void forEach(Specification<ActivityEntity> specification, Consumer<ActivityEntity> consumer);
+}
@@ -0,0 +1,88 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Searches the activities through criteria queries built from the specifications, without count queries.
+ *
+ * @author denis
+ */
+@RequiredArgsConstructor
+class ActivityEntitySearchRepositoryImpl implements ActivityEntitySearchRepository {
+
+    /**
+     * The number of activities fetched per round trip, the persistence context is cleared just as often.
+     */
+    static final int FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    private TypedQuery<ActivityEntity> createQuery(Specification<ActivityEntity> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ActivityEntity> query = criteriaBuilder.createQuery(ActivityEntity.class);
+        Root<ActivityEntity> root = query.from(ActivityEntity.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(query);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<ActivityEntity> findSlice(Specification<ActivityEntity> specification, Pageable pageable) {
+        List<ActivityEntity> activityEntities = createQuery(specification, pageable.getSort())
+                .setHint("jakarta.persistence.query.timeout", Integer.valueOf(ActivityEntityRepository.SEARCH_TIMEOUT))
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = activityEntities.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? activityEntities.subList(0, pageable.getPageSize()) : activityEntities,
+                pageable, hasNext);
+    }
+
+    private Stream<ActivityEntity> stream(Specification<ActivityEntity> specification) {
+        // The activities are neither changed nor read again, so they need no snapshots nor cache entries
+        return createQuery(specification, Sort.by("id"))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Specification<ActivityEntity> specification, Consumer<ActivityEntity> consumer) {
+        try (Stream<ActivityEntity> activityEntities = stream(specification)) {
+            Iterator<ActivityEntity> iterator = activityEntities.iterator();
+            for (int count = 1; iterator.hasNext(); count++) {
+                consumer.accept(iterator.next());
+                if (count % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
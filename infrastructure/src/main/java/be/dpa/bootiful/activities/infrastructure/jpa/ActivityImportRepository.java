@@ -1,19 +1,27 @@
 package be.dpa.bootiful.activities.infrastructure.jpa;
 
+import be.dpa.bootiful.activities.domain.spi.ActivitiesImportedEvent;
+import be.dpa.bootiful.activities.domain.spi.ActivityImportResult;
 import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityParticipantEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.mapper.ActivityEntityMapper;
 import com.github.javafaker.Faker;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.collections4.IteratorUtils;
+import org.apache.commons.collections4.ListUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -27,8 +35,13 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ActivityImportRepository implements be.dpa.bootiful.activities.domain.spi.ActivityImportRepository {
 
+    // Matches the JDBC batch size, every chunk is written in a few batches and then evicted from the session
+    private static final int CHUNK_SIZE = 50;
+
     private final Faker faker = new Faker(Locale.ENGLISH);
 
+    private final EntityManager entityManager;
+
     private final ActivityEntityMapper activityEntityMapper;
 
     private final ActivityEntityRepository activityEntityRepository;
@@ -37,40 +50,86 @@ public class ActivityImportRepository implements be.dpa.bootiful.activities.doma
 
     private final ActivityParticipantRepository activityParticipantRepository;
 
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private ParticipantEntity randomParticipant(Set<List<String>> nameKeys) {
+        String firstName = faker.cat().name();
+        String lastName = faker.artist().name();
+        // Participant names are unique per activity, number them in case the faker repeats itself
+        String uniqueLastName = lastName;
+        for (int i = 2; !nameKeys.add(List.of(ActivityParticipantRepository.normalizeName(firstName),
+                ActivityParticipantRepository.normalizeName(uniqueLastName))); ++i) {
+            uniqueLastName = String.format("%s %d", lastName, i);
+        }
+
+        ParticipantEntity participantEntity = new ParticipantEntity();
+        participantEntity.setAlternateKey(UUID.randomUUID().toString());
+        participantEntity.setFirstName(firstName);
+        participantEntity.setLastName(uniqueLastName);
+        return participantEntity;
+    }
+
     private Set<ParticipantEntity> randomParticipants(Integer noOfParticipants) {
         Set<ParticipantEntity> participantEntities = new LinkedHashSet<>(noOfParticipants);
+        Set<List<String>> nameKeys = new HashSet<>(noOfParticipants);
         for (int i = 0; i < noOfParticipants; ++i) {
-            ParticipantEntity participantEntity = new ParticipantEntity();
-            participantEntity.setAlternateKey(UUID.randomUUID().toString());
-            participantEntity.setFirstName(faker.cat().name());
-            participantEntity.setLastName(faker.artist().name());
-            participantEntities.add(participantEntity);
+            participantEntities.add(randomParticipant(nameKeys));
         }
         return participantEntities;
     }
 
+    private List<ActivityEntity> toNewActivities(Collection<ActivityRecord> activityRecords) {
+        Set<String> externalKeys = activityRecords.stream().map(ActivityRecord::externalKey)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> knownExternalKeys = externalKeys.isEmpty()
+                ? new HashSet<>() : new HashSet<>(activityEntityRepository.findExternalKeys(externalKeys));
+        List<ActivityEntity> activityEntities = new ArrayList<>(activityRecords.size());
+        for (ActivityRecord activityRecord : activityRecords) {
+            // Adding the key also skips an external key repeated within the passed records
+            if (activityRecord.externalKey() == null || knownExternalKeys.add(activityRecord.externalKey())) {
+                activityEntities.add(activityEntityMapper.toActivityEntity(activityRecord));
+            }
+        }
+        return activityEntities;
+    }
 
-
-    private void createParticipants(ActivityEntity activityEntity) {
-        Integer noOfParticipants = activityEntity.getNoOfParticipants();
-        if (noOfParticipants > 0) {
-            Iterable<ParticipantEntity> participantEntityIterable =
-                    participantRepository.saveAll(randomParticipants(noOfParticipants));
-            List<ParticipantEntity> participantEntities = IteratorUtils.toList(participantEntityIterable.iterator());
-            List<ActivityParticipantEntity> assignments = participantEntities.stream().map(participantEntity ->
-                    activityParticipantRepository.createAssignment(activityEntity, participantEntity))
-                    .collect(Collectors.toList());
-            activityParticipantRepository.saveAll(assignments);
+    private int importChunk(List<ActivityEntity> activityEntities) {
+        activityEntityRepository.saveAll(activityEntities);
+        List<ParticipantEntity> participantEntities = new ArrayList<>();
+        List<ActivityParticipantEntity> assignments = new ArrayList<>();
+        for (ActivityEntity activityEntity : activityEntities) {
+            for (ParticipantEntity participantEntity : randomParticipants(activityEntity.getNoOfParticipants())) {
+                participantEntities.add(participantEntity);
+                assignments.add(activityParticipantRepository.createAssignment(activityEntity, participantEntity));
+            }
         }
+        participantRepository.saveAll(participantEntities);
+        activityParticipantRepository.saveAll(assignments);
+        entityManager.flush();
+        entityManager.clear();
+        return participantEntities.size();
     }
 
     @Override
+    @Transactional
     public void importActivity(ActivityRecord activityRecord) {
-        ActivityEntity activityEntity = activityEntityMapper.toActivityEntity(activityRecord);
-        Optional<ActivityEntity> optExists = activityEntityRepository
-                .findByExternalKey(activityRecord.externalKey());
-        if (!optExists.isPresent()) {
-            createParticipants(activityEntityRepository.save(activityEntity));
+        importActivities(List.of(activityRecord));
+    }
+
+    @Override
+    @Transactional
+    public ActivityImportResult importActivities(Collection<ActivityRecord> activityRecords) {
+        List<ActivityEntity> activityEntities = toNewActivities(activityRecords);
+        int participants = 0;
+        for (List<ActivityEntity> chunk : ListUtils.partition(activityEntities, CHUNK_SIZE)) {
+            participants += importChunk(chunk);
+        }
+        if (!activityEntities.isEmpty()) {
+            // Listeners such as the statistics counters get the imported activities once they are committed
+            applicationEventPublisher.publishEvent(new ActivitiesImportedEvent(
+                    activityEntities.stream().map(activityEntityMapper::toActivityRecord).toList()));
         }
+        return new ActivityImportResult(activityRecords.size(), activityEntities.size(),
+                activityRecords.size() - activityEntities.size(), participants);
     }
 }
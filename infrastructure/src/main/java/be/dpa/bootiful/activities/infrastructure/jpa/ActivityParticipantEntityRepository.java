@@ -1,25 +1,38 @@
 package be.dpa.bootiful.activities.infrastructure.jpa;
 
+import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityParticipantEntity;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 /**
  * Repository for the mapping between activities and participants.
  *
  * @author denis
  */
 @Repository
-public interface ActivityParticipantEntityRepository
-        extends PagingAndSortingRepository<ActivityParticipantEntity, Long>,
-                CrudRepository<ActivityParticipantEntity, Long> {
+public interface ActivityParticipantEntityRepository extends JpaRepository<ActivityParticipantEntity, Long> {
+
+    @Query(value = "select new be.dpa.bootiful.activities.domain.spi.ParticipantRecord("
+        + "p.alternateKey, p.firstName, p.lastName) from ActivityParticipantEntity ap join ap.participant p"
+        + " where ap.activity.alternateKey = ?1 order by p.firstName, p.lastName",
+        countQuery = "select count(ap) from ActivityParticipantEntity ap where ap.activity.alternateKey = ?1")
+    Page<ParticipantRecord> findActivityParticipants(String activityAlternateKey, Pageable pageable);
+
+    @Query("select new be.dpa.bootiful.activities.domain.spi.ParticipantRecord("
+        + "p.alternateKey, p.firstName, p.lastName) from ActivityParticipantEntity ap join ap.participant p"
+        + " where ap.activity.alternateKey = ?1 order by p.firstName, p.lastName")
+    Slice<ParticipantRecord> findActivityParticipantSlice(String activityAlternateKey, Pageable pageable);
 
-    @Query("select ap from ActivityParticipantEntity ap where ap.activity.alternateKey = ?1"
-        + " order by ap.participant.firstName, ap.participant.lastName")
-    Page<ActivityParticipantEntity> findActivityParticipants(String activityAlternateKey, Pageable pageable);
+    @Query("select ap.participant from ActivityParticipantEntity ap where ap.activity.alternateKey = ?1"
+        + " and ap.participant.alternateKey = ?2")
+    Optional<ParticipantEntity> findActivityParticipant(String activityAlternateKey, String participantAlternateKey);
 
 }
@@ -4,9 +4,11 @@ import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityParticipantEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Activity participant repository.
@@ -17,8 +19,24 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ActivityParticipantRepository {
 
+    /**
+     * Name of the unique index preventing the same participant name twice within an activity.
+     */
+    static final String UNIQUE_NAME_INDEX = "activity_participant_name_uk";
+
     private final ActivityParticipantEntityRepository activityParticipantEntityRepository;
 
+    /**
+     * Normalizes a participant name the way it is compared to detect duplicate participants. Only spaces are stripped,
+     * the same way as the SQL TRIM the keys of the already existing participants were filled with.
+     *
+     * @param name the first or last name of a participant
+     * @return the normalized name
+     */
+    static String normalizeName(String name) {
+        return StringUtils.lowerCase(StringUtils.strip(name, " "), Locale.ROOT);
+    }
+
     /**
      * Creates an assignment of a participant to an activity.
      *
@@ -31,11 +49,19 @@ public class ActivityParticipantRepository {
         ActivityParticipantEntity activityParticipantEntity = new ActivityParticipantEntity();
         activityParticipantEntity.setActivity(activityEntity);
         activityParticipantEntity.setParticipant(participantEntity);
+        activityParticipantEntity.setFirstNameKey(normalizeName(participantEntity.getFirstName()));
+        activityParticipantEntity.setLastNameKey(normalizeName(participantEntity.getLastName()));
         return activityParticipantEntity;
     }
 
-    public ActivityParticipantEntity save(ActivityParticipantEntity activityParticipantEntity) {
-        return activityParticipantEntityRepository.save(activityParticipantEntity);
+    /**
+     * Saves an assignment and flushes it right away, so that a violated constraint is raised by this call.
+     *
+     * @param activityParticipantEntity the assignment entity
+     * @return the saved assignment entity
+     */
+    public ActivityParticipantEntity saveAndFlush(ActivityParticipantEntity activityParticipantEntity) {
+        return activityParticipantEntityRepository.saveAndFlush(activityParticipantEntity);
     }
 
     public void saveAll(List<ActivityParticipantEntity> activityParticipantEntities) {
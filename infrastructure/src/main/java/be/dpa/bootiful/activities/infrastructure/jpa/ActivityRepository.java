@@ -1,27 +1,54 @@
 package be.dpa.bootiful.activities.infrastructure.jpa;
 
+import be.dpa.bootiful.activities.domain.search.SearchPlanCache;
+import be.dpa.bootiful.activities.domain.spi.ActivityCountRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityDeleteResult;
 import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivitySaveResult;
 import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
+import be.dpa.bootiful.activities.domain.spi.ParticipantSaveResult;
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
+import be.dpa.bootiful.activities.domain.spi.exception.SearchTimeoutException;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityParticipantEntity;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityTrigramEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
 import be.dpa.bootiful.activities.infrastructure.jpa.filter.CustomRsqlVisitor;
 import be.dpa.bootiful.activities.infrastructure.jpa.mapper.ActivityEntityMapper;
 import be.dpa.bootiful.activities.infrastructure.jpa.mapper.ParticipantEntityMapper;
-import cz.jirutka.rsql.parser.RSQLParser;
-import cz.jirutka.rsql.parser.ast.Node;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * The activity repository implementation.
@@ -32,7 +59,44 @@ import java.util.stream.Collectors;
 @Repository
 public class ActivityRepository implements be.dpa.bootiful.activities.domain.spi.ActivityRepository {
 
-    private static final long ZERO_ROWS_AFFECTED = 0L;
+    private static final Sort ACTIVITY_ORDER = Sort.by("type", "action", "id");
+
+    private static final String STORED_ACTIVITY_COLUMNS = "id, alternate_key, external_key, action, type,"
+            + " no_of_participants, details, version";
+
+    private static final String STORED_ACTIVITY = "SELECT " + STORED_ACTIVITY_COLUMNS + " FROM ";
+
+    // The participants of an updated activity move along to its new type, the same statement counts them
+    private static final String UPDATED_ACTIVITY = "SELECT " + STORED_ACTIVITY_COLUMNS + ", (SELECT COUNT(*)"
+            + " FROM activity_participant ap WHERE ap.activity_id = previous.id) AS no_of_enrolled FROM OLD TABLE (";
+
+    private static final String UPDATE_ACTIVITY_BY_KEY = "UPDATE activity SET external_key = ?, action = ?,"
+            + " type = ?, no_of_participants = ?, details = ?, version = version + 1 WHERE alternate_key = ?";
+
+    // The old rows of an update or a delete are the previous activities, the statistics count them down
+    private static final String UPDATE_ACTIVITY = UPDATED_ACTIVITY + UPDATE_ACTIVITY_BY_KEY + ") previous";
+
+    private static final String UPDATE_ACTIVITY_VERSION =
+            UPDATED_ACTIVITY + UPDATE_ACTIVITY_BY_KEY + " AND version = ?) previous";
+
+    private static final String DELETE_ACTIVITY =
+            STORED_ACTIVITY + "OLD TABLE (DELETE FROM activity WHERE alternate_key = ?)";
+
+    // The old rows tell which participants to evict, their assignments are deleted by the cascading foreign key
+    private static final String DELETE_ACTIVITY_PARTICIPANTS = "SELECT id, alternate_key FROM OLD TABLE ("
+            + "DELETE FROM participant WHERE id IN (SELECT ap.participant_id FROM activity_participant ap"
+            + " JOIN activity a ON a.id = ap.activity_id WHERE a.alternate_key = ?))";
+
+    private static final String INSERT_ACTIVITY = STORED_ACTIVITY + "FINAL TABLE (INSERT INTO activity"
+            + " (id, alternate_key, external_key, action, type, no_of_participants, details)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?))";
+
+    private static final RowMapper<StoredActivity> STORED_ACTIVITY_MAPPER = (rs, rowNum) ->
+            new StoredActivity(rs.getLong("id"), toActivityRecord(rs));
+
+    private static final RowMapper<UpdatedActivity> UPDATED_ACTIVITY_MAPPER = (rs, rowNum) ->
+            new UpdatedActivity(rs.getLong("id"), toActivityRecord(rs), rs.getLong("no_of_enrolled"));
+
     private final ActivityEntityMapper activityEntityMapper;
 
     private final ParticipantEntityMapper participantEntityMapper;
@@ -45,13 +109,40 @@ public class ActivityRepository implements be.dpa.bootiful.activities.domain.spi
 
     private final ParticipantEntityRepository participantEntityRepository;
 
+    private final SearchPlanCache searchPlanCache;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final EntityManager entityManager;
+
+    private record StoredActivity(long id, ActivityRecord activity) {}
+
+    private record UpdatedActivity(long id, ActivityRecord previous, long noOfEnrolled) {}
+
+    private static ActivityRecord toActivityRecord(ResultSet rs) throws SQLException {
+        return new ActivityRecord(rs.getString("alternate_key"), rs.getString("external_key"),
+                rs.getString("action"), rs.getString("type"), rs.getInt("no_of_participants"),
+                rs.getString("details"), rs.getLong("version"));
+    }
+
+    private Specification<ActivityEntity> toSpecification(String search) {
+        // The specifications are stateless and thus built only once per search plan
+        return searchPlanCache.getPlan(search).compile(ActivityEntity.class, rootNode ->
+                rootNode.accept(new CustomRsqlVisitor<ActivityEntity>(ActivityTrigramEntity.INDEXED_PROPERTIES)));
+    }
+
     private Page<ActivityEntity> doGetAll(Optional<String> search, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         if (search.isPresent()) {
-            Node rootNode = new RSQLParser().parse(search.get());
-            Specification<ActivityEntity> specification = rootNode.accept(new CustomRsqlVisitor<>());
+            Specification<ActivityEntity> specification = toSpecification(search.get());
             // Sort.by((Sort.Direction.ASC, "type", "action");
-            return activityEntityRepository.findAll(specification, pageable);
+            try {
+                return activityEntityRepository.findAll(specification, pageable);
+            } catch (QueryTimeoutException e) {
+                throw new SearchTimeoutException(String.format("The search %s timed out", search.get()), e);
+            }
         }
         return activityEntityRepository.findByOrderByTypeAscActionAsc(pageable);
     }
@@ -62,29 +153,67 @@ public class ActivityRepository implements be.dpa.bootiful.activities.domain.spi
         return activityEntities.map(activityEntityMapper::toActivityRecord);
     }
 
+    @Override
+    public Window<ActivityRecord> getAll(Optional<String> search, ScrollPosition position, int size) {
+        Specification<ActivityEntity> specification =
+                search.map(this::toSpecification).orElseGet(() -> Specification.where(null));
+        // Keyset scrolling continues after the last (type, action, id) and thus needs neither offset nor count
+        Window<ActivityEntity> activityEntities = activityEntityRepository.findBy(specification,
+                query -> query.sortBy(ACTIVITY_ORDER).limit(size).scroll(position));
+        return activityEntities.map(activityEntityMapper::toActivityRecord);
+    }
+
+    @Override
+    public Slice<ActivityRecord> getSlice(Optional<String> search, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        if (search.isPresent()) {
+            Specification<ActivityEntity> specification = toSpecification(search.get());
+            try {
+                return activityEntityRepository.findSlice(specification, pageable)
+                        .map(activityEntityMapper::toActivityRecord);
+            } catch (QueryTimeoutException e) {
+                throw new SearchTimeoutException(String.format("The search %s timed out", search.get()), e);
+            }
+        }
+        return activityEntityRepository.findSliceByOrderByTypeAscActionAsc(pageable)
+                .map(activityEntityMapper::toActivityRecord);
+    }
+
+    @Override
+    public void exportAll(Optional<String> search, Consumer<ActivityRecord> consumer) {
+        Specification<ActivityEntity> specification =
+                search.map(this::toSpecification).orElseGet(() -> Specification.where(null));
+        activityEntityRepository.forEach(specification,
+                activityEntity -> consumer.accept(activityEntityMapper.toActivityRecord(activityEntity)));
+    }
+
     @Override
     public Optional<ActivityRecord> getBy(String alternateKey) {
         Optional<ActivityEntity> optFound = activityEntityRepository.findByAlternateKey(alternateKey);
         return optFound.map(activityEntity -> activityEntityMapper.toActivityRecord(activityEntity));
     }
 
-    private Page<ParticipantRecord> getParticipantsBy(String alternateKey, Pageable pageable) {
-        Page<ActivityParticipantEntity> activityParticipants =
-                activityParticipantEntityRepository
-                        .findActivityParticipants(alternateKey, pageable);
-        return activityParticipants.map(activityParticipantEntity ->
-                participantEntityMapper.toParticipantRecord(activityParticipantEntity.getParticipant()));
+    @Override
+    public Page<ParticipantRecord> getParticipantsBy(String alternateKey, int page, int size) {
+        return activityParticipantEntityRepository.findActivityParticipants(alternateKey, PageRequest.of(page, size));
     }
 
     @Override
-    public Page<ParticipantRecord> getParticipantsBy(String alternateKey, int page, int size) {
-        return getParticipantsBy(alternateKey, PageRequest.of(page, size));
+    public Slice<ParticipantRecord> getParticipantSliceBy(String alternateKey, int page, int size) {
+        return activityParticipantEntityRepository.findActivityParticipantSlice(alternateKey,
+                PageRequest.of(page, size));
     }
 
     @Override
-    public List<ParticipantRecord> getParticipantsBy(String alternateKey) {
-        Page<ParticipantRecord> allParticipants = getParticipantsBy(alternateKey, Pageable.unpaged());
-        return allParticipants.getContent();
+    public Optional<ParticipantRecord> getParticipantBy(String alternateKey, String participantAk) {
+        return activityParticipantEntityRepository.findActivityParticipant(alternateKey, participantAk)
+                .map(participantEntityMapper::toParticipantRecord);
+    }
+
+    private boolean isDuplicateParticipant(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException constraintViolation
+                && StringUtils.containsIgnoreCase(constraintViolation.getConstraintName(),
+                        ActivityParticipantRepository.UNIQUE_NAME_INDEX);
     }
 
     private ParticipantEntity newParticipant(ParticipantRecord participantRecord) {
@@ -94,40 +223,130 @@ public class ActivityRepository implements be.dpa.bootiful.activities.domain.spi
     }
 
     @Override
-    public ParticipantRecord newParticipant(String alternateKey, ParticipantRecord participantRecord) {
-        ActivityEntity activityEntity = activityEntityRepository.findByAlternateKey(alternateKey).get();
+    @Transactional(rollbackFor = DuplicateParticipantException.class)
+    public Optional<ParticipantSaveResult> newParticipant(String alternateKey, ParticipantRecord participantRecord)
+            throws DuplicateParticipantException {
+        Optional<ActivityEntity> optActivityEntity = activityEntityRepository.findByAlternateKey(alternateKey);
+        if (!optActivityEntity.isPresent()) {
+            return Optional.empty();
+        }
+
         ParticipantEntity participantEntity = newParticipant(participantRecord);
         ActivityParticipantEntity assignment =
-                activityParticipantRepository.createAssignment(activityEntity, participantEntity);
-        activityParticipantRepository.save(assignment);
-        return participantEntityMapper.toParticipantRecord(participantEntity);
+                activityParticipantRepository.createAssignment(optActivityEntity.get(), participantEntity);
+        try {
+            activityParticipantRepository.saveAndFlush(assignment);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateParticipant(e)) {
+                throw new DuplicateParticipantException(String.format("The participant %s %s already exists",
+                        participantRecord.firstName(), participantRecord.lastName()), e);
+            }
+            throw e;
+        }
+        return Optional.of(new ParticipantSaveResult(participantEntityMapper.toParticipantRecord(participantEntity),
+                activityEntityMapper.toActivityRecord(optActivityEntity.get())));
+    }
+
+    private static ActivitySaveResult toUpdated(ActivityRecord activity, UpdatedActivity updated) {
+        // The update sets every column from the passed activity, apart from the version it increments
+        ActivityRecord previous = updated.previous();
+        return new ActivitySaveResult(new ActivityRecord(activity.alternateKey(), activity.externalKey(),
+                activity.action(), activity.type(), activity.noOfParticipants(), activity.details(),
+                previous.version() + 1), previous, updated.noOfEnrolled());
+    }
+
+    private Optional<ActivitySaveResult> doUpdate(String sql, ActivityRecord activity, Object... conditions) {
+        Object[] args = ArrayUtils.addAll(new Object[] {activity.externalKey(), activity.action(), activity.type(),
+            activity.noOfParticipants(), activity.details(), activity.alternateKey()}, conditions);
+        List<UpdatedActivity> previous = jdbcTemplate.query(sql, UPDATED_ACTIVITY_MAPPER, args);
+        // Only the updated activity is evicted, a bulk update through Hibernate would clear the whole region
+        previous.forEach(updated -> entityManagerFactory.getCache().evict(ActivityEntity.class, updated.id()));
+        return previous.stream().findFirst().map(updated -> toUpdated(activity, updated));
     }
 
-    private ActivityRecord doSave(ActivityEntity activityEntity) {
-        return activityEntityMapper.toActivityRecord(activityEntityRepository.save(activityEntity));
+    private long nextActivityId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister =
+                session.getFactory().getMappingMetamodel().getEntityDescriptor(ActivityEntity.class);
+        // The same pooled generator as for the entities, a sequence value per insert would skip a block of 50 ids
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) persister.getGenerator();
+        return ((Number) generator.generate(session, null, null, EventType.INSERT)).longValue();
+    }
+
+    private StoredActivity insert(ActivityRecord activity) {
+        return jdbcTemplate.queryForObject(INSERT_ACTIVITY, STORED_ACTIVITY_MAPPER, nextActivityId(),
+                activity.alternateKey(), activity.externalKey(), activity.action(), activity.type(),
+                activity.noOfParticipants(), activity.details());
     }
 
     @Override
-    public ActivityRecord save(ActivityRecord activity) {
-        ActivityEntity activityEntity = activityEntityMapper.toActivityEntity(activity);
-        Optional<ActivityEntity> optExists = activityEntityRepository.findByAlternateKey(activity.alternateKey());
-        optExists.ifPresent(a -> activityEntity.setId(a.getId()));
-        return doSave(activityEntity);
+    @Transactional
+    public ActivitySaveResult save(ActivityRecord activity) {
+        // Most saves go to an existing activity, so try the update first and fall back to the insert
+        Optional<ActivitySaveResult> optUpdated = doUpdate(UPDATE_ACTIVITY, activity);
+        if (optUpdated.isPresent()) {
+            return optUpdated.get();
+        }
+        try {
+            return new ActivitySaveResult(insert(activity).activity(), null, 0L);
+        } catch (DuplicateKeyException e) {
+            // Created concurrently in between the update and the insert
+            return doUpdate(UPDATE_ACTIVITY, activity).orElseThrow(() -> e);
+        }
     }
 
     @Override
-    public long delete(String alternateKey) {
-        Optional<ActivityEntity> optActivityEntity = activityEntityRepository.findByAlternateKey(alternateKey);
-        if (!optActivityEntity.isPresent()) {
-            return ZERO_ROWS_AFFECTED;
+    public Optional<ActivitySaveResult> update(ActivityRecord activity, long expectedVersion) {
+        // Checking and incrementing the version in one statement leaves no room for a concurrent update
+        return doUpdate(UPDATE_ACTIVITY_VERSION, activity, expectedVersion);
+    }
+
+    private static StoredActivity toStoredActivity(Object[] row) {
+        return new StoredActivity(((Number) row[0]).longValue(), new ActivityRecord((String) row[1],
+                (String) row[2], (String) row[3], (String) row[4], ((Number) row[5]).intValue(), (String) row[6],
+                ((Number) row[7]).longValue()));
+    }
+
+    private void evictNaturalId(Class<?> entityClass, String alternateKey) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister =
+                session.getFactory().getMappingMetamodel().getEntityDescriptor(entityClass);
+        NaturalIdDataAccess naturalIdAccess = persister.getNaturalIdCacheAccessStrategy();
+        // Evicting the whole region would send every other lookup by alternate key to the database
+        if (naturalIdAccess != null) {
+            naturalIdAccess.evict(naturalIdAccess.generateCacheKey(alternateKey, persister, session));
+        }
+    }
+
+    @Override
+    @Transactional
+    public Optional<ActivityDeleteResult> delete(String alternateKey) {
+        // Two bulk statements regardless of the number of participants, the assignments cascade
+        @SuppressWarnings("unchecked")
+        List<Object[]> participantRows = entityManager.createNativeQuery(DELETE_ACTIVITY_PARTICIPANTS)
+                .setParameter(1, alternateKey)
+                .getResultList();
+        // A bulk delete through Hibernate would clear the whole participant region, only the deleted ones are evicted
+        for (Object[] participantRow : participantRows) {
+            entityManagerFactory.getCache().evict(ParticipantEntity.class, ((Number) participantRow[0]).longValue());
+            evictNaturalId(ParticipantEntity.class, (String) participantRow[1]);
         }
+        long noOfEnrolled = participantRows.size();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(DELETE_ACTIVITY)
+                .setParameter(1, alternateKey)
+                .getResultList();
+        Optional<StoredActivity> optDeleted = rows.stream().map(ActivityRepository::toStoredActivity).findFirst();
+        optDeleted.ifPresent(deleted -> {
+            // Hibernate does not know about the native delete, neither the activity nor its natural id may linger
+            entityManagerFactory.getCache().evict(ActivityEntity.class, deleted.id());
+            evictNaturalId(ActivityEntity.class, alternateKey);
+        });
+        return optDeleted.map(deleted -> new ActivityDeleteResult(deleted.activity(), noOfEnrolled));
+    }
 
-        ActivityEntity activityEntity = optActivityEntity.get();
-        Set<ActivityParticipantEntity> activityParticipantEntities = activityEntity.getParticipantAssignments();
-        Set<ParticipantEntity> participantEntities = activityParticipantEntities.stream()
-                .map(ActivityParticipantEntity::getParticipant).collect(Collectors.toSet());
-        activityParticipantEntityRepository.deleteAll(activityParticipantEntities);
-        participantEntityRepository.deleteAll(participantEntities);
-        return activityEntityRepository.deleteByAlternateKey(alternateKey);
+    @Override
+    public List<ActivityCountRecord> countActivities() {
+        return activityEntityRepository.countActivities();
     }
 }
@@ -1,14 +1,20 @@
 package be.dpa.bootiful.activities.infrastructure.jpa.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.Objects;
 import java.util.Set;
@@ -19,10 +25,14 @@ import java.util.Set;
  * @author denis
  */
 @Entity(name = "activity")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "activity")
+@NaturalIdCache(region = "activity-natural-id")
 public class ActivityEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_seq")
+    @SequenceGenerator(name = "activity_seq", sequenceName = "activity_seq", allocationSize = 50)
     private Long id;
 
     @NaturalId
@@ -46,6 +56,9 @@ public class ActivityEntity {
     @Size(max = 255)
     private String details;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "activity")
     private Set<ActivityParticipantEntity> participantAssignments;
 
@@ -105,6 +118,14 @@ public class ActivityEntity {
         this.details = details;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Set<ActivityParticipantEntity> getParticipantAssignments() {
         return participantAssignments;
     }
@@ -141,6 +162,7 @@ public class ActivityEntity {
                 + ", action=" + this.getAction()
                 + ", type=" + this.getType()
                 + ", noOfParticipants=" + this.getNoOfParticipants()
-                + ", details=" + this.getDetails() + ")";
+                + ", details=" + this.getDetails()
+                + ", version=" + this.getVersion() + ")";
     }
 }
@@ -1,11 +1,13 @@
 package be.dpa.bootiful.activities.infrastructure.jpa.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import java.util.Objects;
@@ -20,17 +22,23 @@ import java.util.Objects;
 public class ActivityParticipantEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_participant_seq")
+    @SequenceGenerator(name = "activity_participant_seq", sequenceName = "activity_participant_seq",
+        allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "activity_id")
     private ActivityEntity activity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "participant_id")
     private ParticipantEntity participant;
 
+    private String firstNameKey;
+
+    private String lastNameKey;
+
     public Long getId() {
         return id;
     }
@@ -55,6 +63,22 @@ public class ActivityParticipantEntity {
         this.participant = participant;
     }
 
+    public String getFirstNameKey() {
+        return firstNameKey;
+    }
+
+    public void setFirstNameKey(String firstNameKey) {
+        this.firstNameKey = firstNameKey;
+    }
+
+    public String getLastNameKey() {
+        return lastNameKey;
+    }
+
+    public void setLastNameKey(String lastNameKey) {
+        this.lastNameKey = lastNameKey;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,81 @@
+package be.dpa.bootiful.activities.infrastructure.jpa.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A trigram of the action or the details of an activity, maintained by a database trigger and thus read only.
+ *
+ * @author denis
+ */
+@Entity
+@Immutable
+@Table(name = "activity_trigram")
+@IdClass(ActivityTrigramEntity.Key.class)
+public class ActivityTrigramEntity {
+
+    /**
+     * The properties of the activities having their trigrams indexed.
+     */
+    public static final Set<String> INDEXED_PROPERTIES = Set.of("action", "details");
+
+    @Id
+    private Long activityId;
+
+    @Id
+    private String property;
+
+    @Id
+    private String trigram;
+
+    public Long getActivityId() {
+        return activityId;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getTrigram() {
+        return trigram;
+    }
+
+    /**
+     * The key of an activity trigram.
+     */
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long activityId;
+
+        private String property;
+
+        private String trigram;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(activityId, key.activityId) && Objects.equals(property, key.property)
+                    && Objects.equals(trigram, key.trigram);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(activityId, property, trigram);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package be.dpa.bootiful.activities.infrastructure.jpa.filter;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityTrigramEntity;
+import org.h2.tools.TriggerAdapter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * H2 trigger indexing the trigrams of an inserted or updated activity, see the migration creating it.
+ *
+ * @author denis
+ */
+public class ActivityTrigramTrigger extends TriggerAdapter {
+
+    private static final String DELETE_TRIGRAMS = "DELETE FROM activity_trigram WHERE activity_id = ?";
+
+    private static final String INSERT_TRIGRAM =
+            "INSERT INTO activity_trigram (activity_id, property, trigram) VALUES (?, ?, ?)";
+
+    private boolean isUnchanged(ResultSet oldRow, ResultSet newRow) throws SQLException {
+        if (oldRow == null) {
+            return false;
+        }
+        for (String property : ActivityTrigramEntity.INDEXED_PROPERTIES) {
+            if (!Objects.equals(oldRow.getString(property), newRow.getString(property))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void fire(Connection connection, ResultSet oldRow, ResultSet newRow) throws SQLException {
+        if (isUnchanged(oldRow, newRow)) {
+            return;
+        }
+        long activityId = newRow.getLong("id");
+        if (oldRow != null) {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE_TRIGRAMS)) {
+                delete.setLong(1, activityId);
+                delete.executeUpdate();
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TRIGRAM)) {
+            for (String property : ActivityTrigramEntity.INDEXED_PROPERTIES) {
+                for (String trigram : Trigrams.of(newRow.getString(property))) {
+                    insert.setLong(1, activityId);
+                    insert.setString(2, property);
+                    insert.setString(3, trigram);
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import cz.jirutka.rsql.parser.ast.OrNode;
 import cz.jirutka.rsql.parser.ast.RSQLVisitor;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Set;
+
 
 /**
  * RSQL query visitor.
@@ -20,6 +22,10 @@ public class CustomRsqlVisitor<T> implements RSQLVisitor<Specification<T>, Void>
         builder = new GenericRsqlSpecBuilder<T>();
     }
 
+    public CustomRsqlVisitor(Set<String> trigramIndexedProperties) {
+        builder = new GenericRsqlSpecBuilder<T>(trigramIndexedProperties);
+    }
+
     @Override
     public Specification<T> visit(AndNode node, Void unused) {
         return builder.createSpecification(node);
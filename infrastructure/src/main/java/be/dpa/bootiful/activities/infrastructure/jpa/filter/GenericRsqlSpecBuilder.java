@@ -4,10 +4,12 @@ import cz.jirutka.rsql.parser.ast.ComparisonNode;
 import cz.jirutka.rsql.parser.ast.LogicalNode;
 import cz.jirutka.rsql.parser.ast.LogicalOperator;
 import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.RSQLOperators;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -17,6 +19,24 @@ import java.util.stream.Collectors;
  */
 public class GenericRsqlSpecBuilder<T> {
 
+    private final Set<String> trigramIndexedProperties;
+
+    /**
+     * Creates a builder for an entity without a trigram index.
+     */
+    public GenericRsqlSpecBuilder() {
+        this(Set.of());
+    }
+
+    /**
+     * Creates a builder using the trigram index for string matches of the passed properties.
+     *
+     * @param trigramIndexedProperties the properties having their trigrams indexed
+     */
+    public GenericRsqlSpecBuilder(Set<String> trigramIndexedProperties) {
+        this.trigramIndexedProperties = trigramIndexedProperties;
+    }
+
     /**
      * Creates a specification for the passed node.
      *
@@ -74,6 +94,12 @@ public class GenericRsqlSpecBuilder<T> {
                         comparisonNode.getArguments()
                 )
         );
+        if (comparisonNode.getOperator() == RSQLOperators.EQUAL
+                && trigramIndexedProperties.contains(comparisonNode.getSelector())) {
+            // Narrow the match down to the activities containing the trigrams of the pattern first
+            result = Specification.where(new TrigramRsqlSpecification<T>(comparisonNode.getSelector(),
+                    comparisonNode.getArguments().get(0))).and(result);
+        }
         return result;
     }
 }
@@ -24,7 +24,9 @@ public class GenericRsqlSpecification<T> implements Specification<T> {
     private final List<String> arguments;
 
     @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        // The arguments have the Java type of the attribute, the range predicates thus compare numbers numerically
         List<Object> args = castArguments(root);
         Object argument = args.get(0);
         switch (RsqlSearchOperation.getSimpleOperator(operator)) {
@@ -47,16 +49,16 @@ public class GenericRsqlSpecification<T> implements Specification<T> {
                 }
             }
             case GREATER_THAN: {
-                return builder.greaterThan(root.<String>get(property), argument.toString());
+                return builder.greaterThan(root.<Comparable>get(property), (Comparable) argument);
             }
             case GREATER_THAN_OR_EQUAL: {
-                return builder.greaterThanOrEqualTo(root.<String>get(property), argument.toString());
+                return builder.greaterThanOrEqualTo(root.<Comparable>get(property), (Comparable) argument);
             }
             case LESS_THAN: {
-                return builder.lessThan(root.<String>get(property), argument.toString());
+                return builder.lessThan(root.<Comparable>get(property), (Comparable) argument);
             }
             case LESS_THAN_OR_EQUAL: {
-                return builder.lessThanOrEqualTo(root.<String>get(property), argument.toString());
+                return builder.lessThanOrEqualTo(root.<Comparable>get(property), (Comparable) argument);
             }
             case IN:
                 return root.get(property).in(args);
@@ -0,0 +1,41 @@
+package be.dpa.bootiful.activities.infrastructure.jpa.filter;
+
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ActivityTrigramEntity;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+
+/**
+ * Restricts a string match of an indexed property to the activities containing all trigrams of the pattern.
+ * It is only a pre-filter using the trigram index, the match itself still has to be applied on top.
+ *
+ * @param <T> the entity type
+ */
+@RequiredArgsConstructor
+public class TrigramRsqlSpecification<T> implements Specification<T> {
+
+    private final String property;
+    private final String pattern;
+
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        Set<String> trigrams = Trigrams.ofPattern(pattern);
+        if (trigrams.isEmpty()) {
+            // Too short to use the index, the match scans the activities
+            return null;
+        }
+        Subquery<Long> matches = query.subquery(Long.class);
+        Root<ActivityTrigramEntity> trigram = matches.from(ActivityTrigramEntity.class);
+        matches.select(trigram.get("activityId"))
+                .where(builder.equal(trigram.get("property"), property), trigram.get("trigram").in(trigrams))
+                .groupBy(trigram.get("activityId"))
+                .having(builder.equal(builder.count(trigram), (long) trigrams.size()));
+        return root.get("id").in(matches);
+    }
+}
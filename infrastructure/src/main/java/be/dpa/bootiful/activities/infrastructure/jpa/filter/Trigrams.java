@@ -0,0 +1,59 @@
+package be.dpa.bootiful.activities.infrastructure.jpa.filter;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits texts into their lower case trigrams, the terms of the activity trigram index.
+ *
+ * @author denis
+ */
+public final class Trigrams {
+
+    private static final int LENGTH = 3;
+
+    private static final String WILDCARDS = "[*%_]";
+
+    /**
+     * Prevent instancing.
+     */
+    private Trigrams() {
+    }
+
+    /**
+     * Gets the trigrams of the passed text.
+     *
+     * @param text the text, may be null
+     * @return the distinct trigrams of the text
+     */
+    public static Set<String> of(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        if (text != null) {
+            addTrigrams(text, trigrams);
+        }
+        return trigrams;
+    }
+
+    /**
+     * Gets the trigrams every text matching the passed pattern contains, that are the trigrams of the literal
+     * parts between its wildcards.
+     *
+     * @param pattern the pattern, its wildcards being '*' or the SQL wildcards '%' and '_'
+     * @return the distinct trigrams of the literal parts, empty if none of them is long enough
+     */
+    public static Set<String> ofPattern(String pattern) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String literal : pattern.split(WILDCARDS)) {
+            addTrigrams(literal, trigrams);
+        }
+        return trigrams;
+    }
+
+    private static void addTrigrams(String text, Set<String> trigrams) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + LENGTH <= lowerCase.length(); ++i) {
+            trigrams.add(lowerCase.substring(i, i + LENGTH));
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.mapstruct.Mapping;
 public interface ActivityEntityMapper {
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     ActivityEntity toActivityEntity(ActivityRecord activity);
 
     ActivityRecord toActivityRecord(ActivityEntity activityEntity);
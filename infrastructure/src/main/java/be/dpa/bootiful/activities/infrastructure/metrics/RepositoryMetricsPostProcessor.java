@@ -0,0 +1,80 @@
+package be.dpa.bootiful.activities.infrastructure.metrics;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityRepository;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every call of the domain SPI implementations, f.e. of the activity repository, by the SPI interface and the
+ * method called. The timer wraps the transaction of a call, so its commit is measured too.
+ *
+ * @author denis
+ */
+@Component
+public class RepositoryMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public static final String REPOSITORY_TIMER = "activity.repository";
+
+    private static final String SPI_PACKAGE = ActivityRepository.class.getPackageName();
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the post processor, it adds the timing in front of already existing advisors like the transactional
+     * one.
+     */
+    public RepositoryMetricsPostProcessor() {
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+        advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return findSpiMethod(method, targetClass).isPresent();
+            }
+        }, (MethodInterceptor) this::time);
+    }
+
+    private static Optional<Method> findSpiMethod(Method method, Class<?> targetClass) {
+        return ClassUtils.getAllInterfacesForClassAsSet(targetClass).stream()
+                .filter(type -> SPI_PACKAGE.equals(type.getPackageName()))
+                .map(type -> ClassUtils.getMethodIfAvailable(type, method.getName(), method.getParameterTypes()))
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+
+    private static Timer toTimer(MethodInvocation invocation, String exception) {
+        Method method = findSpiMethod(invocation.getMethod(), AopUtils.getTargetClass(invocation.getThis()))
+                .orElse(invocation.getMethod());
+        return Metrics.timer(REPOSITORY_TIMER, "repository", method.getDeclaringClass().getSimpleName(),
+                "method", method.getName(), "exception", exception);
+    }
+
+    private Object time(MethodInvocation invocation) throws Throwable {
+        // Calls taking a consumer, like exportAll, are timed including the consumer, f.e. streaming the HTTP response
+        Timer.Sample sample = Timer.start();
+        try {
+            Object result = invocation.proceed();
+            sample.stop(timers.computeIfAbsent(invocation.getMethod(), method -> toTimer(invocation, NO_EXCEPTION)));
+            return result;
+        } catch (Throwable e) {
+            sample.stop(toTimer(invocation, e.getClass().getSimpleName()));
+            throw e;
+        }
+    }
+}
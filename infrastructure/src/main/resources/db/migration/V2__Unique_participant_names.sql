@@ -0,0 +1,20 @@
+ALTER TABLE activity_participant ADD COLUMN first_name_key VARCHAR(255) NULL;
+ALTER TABLE activity_participant ADD COLUMN last_name_key VARCHAR(255) NULL;
+
+UPDATE activity_participant ap SET
+    first_name_key = (SELECT LOWER(TRIM(p.first_name)) FROM participant p WHERE p.id = ap.participant_id),
+    last_name_key = (SELECT LOWER(TRIM(p.last_name)) FROM participant p WHERE p.id = ap.participant_id);
+
+-- Keep already existing duplicates apart, they would prevent the unique index otherwise
+UPDATE activity_participant ap SET last_name_key = CONCAT(LEFT(ap.last_name_key, 240), '#', ap.id)
+WHERE EXISTS (SELECT 1 FROM activity_participant o
+              WHERE o.activity_id = ap.activity_id
+                AND o.first_name_key = ap.first_name_key
+                AND o.last_name_key = ap.last_name_key
+                AND o.id < ap.id);
+
+ALTER TABLE activity_participant ALTER COLUMN first_name_key SET NOT NULL;
+ALTER TABLE activity_participant ALTER COLUMN last_name_key SET NOT NULL;
+
+CREATE UNIQUE INDEX activity_participant_name_uk
+    ON activity_participant(activity_id, first_name_key, last_name_key);
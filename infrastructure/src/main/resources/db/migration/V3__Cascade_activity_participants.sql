@@ -0,0 +1,27 @@
+-- The foreign keys of the assignments are unnamed, the table is recreated to let them cascade deletes
+CREATE TABLE activity_participant_cascade (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    activity_id INT NOT NULL,
+    participant_id INT NOT NULL,
+    first_name_key VARCHAR(255) NOT NULL,
+    last_name_key VARCHAR(255) NOT NULL,
+    CONSTRAINT activity_participant_activity_fk FOREIGN KEY (activity_id)
+        REFERENCES activity(id) ON DELETE CASCADE,
+    CONSTRAINT activity_participant_participant_fk FOREIGN KEY (participant_id)
+        REFERENCES participant(id) ON DELETE CASCADE
+);
+
+INSERT INTO activity_participant_cascade (id, activity_id, participant_id, first_name_key, last_name_key)
+SELECT id, activity_id, participant_id, first_name_key, last_name_key FROM activity_participant;
+
+DROP TABLE activity_participant;
+
+ALTER TABLE activity_participant_cascade RENAME TO activity_participant;
+
+ALTER TABLE activity_participant ALTER COLUMN id
+    RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM activity_participant);
+
+CREATE UNIQUE INDEX activity_participant_name_uk
+    ON activity_participant(activity_id, first_name_key, last_name_key);
+
+CREATE INDEX activity_participant_participant_idx ON activity_participant(participant_id);
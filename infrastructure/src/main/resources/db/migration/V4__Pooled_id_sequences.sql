@@ -0,0 +1,10 @@
+-- Identity columns prevent JDBC batch inserts, the entities take their ids from pooled sequences instead.
+-- Each sequence value is the upper bound of a block of 50 ids, the first block starts after the existing rows.
+CREATE SEQUENCE activity_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE activity_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM activity);
+
+CREATE SEQUENCE participant_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE participant_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM participant);
+
+CREATE SEQUENCE activity_participant_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE activity_participant_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM activity_participant);
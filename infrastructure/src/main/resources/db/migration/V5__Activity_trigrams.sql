@@ -0,0 +1,24 @@
+-- Trigram index over the action and details of the activities, it spares wildcard searches like *party*
+-- a scan over all activities. The trigger keeps it in sync with every insert and update, deletes cascade.
+CREATE TABLE activity_trigram (
+    activity_id INT NOT NULL,
+    property VARCHAR(20) NOT NULL,
+    trigram VARCHAR(3) NOT NULL,
+    CONSTRAINT activity_trigram_pk PRIMARY KEY (property, trigram, activity_id),
+    CONSTRAINT activity_trigram_activity_fk FOREIGN KEY (activity_id)
+        REFERENCES activity(id) ON DELETE CASCADE
+);
+
+CREATE INDEX activity_trigram_activity_idx ON activity_trigram(activity_id);
+
+CREATE TRIGGER activity_trigram_trg AFTER INSERT, UPDATE ON activity FOR EACH ROW
+    CALL 'be.dpa.bootiful.activities.infrastructure.jpa.filter.ActivityTrigramTrigger';
+
+-- Index the already existing activities, the same way the trigger does
+INSERT INTO activity_trigram (activity_id, property, trigram)
+SELECT DISTINCT a.id, 'action', SUBSTRING(LOWER(a.action), r.x, 3)
+FROM activity a JOIN SYSTEM_RANGE(1, 253) r ON r.x + 2 <= LENGTH(LOWER(a.action));
+
+INSERT INTO activity_trigram (activity_id, property, trigram)
+SELECT DISTINCT a.id, 'details', SUBSTRING(LOWER(a.details), r.x, 3)
+FROM activity a JOIN SYSTEM_RANGE(1, 253) r ON r.x + 2 <= LENGTH(LOWER(a.details));
@@ -0,0 +1,2 @@
+-- Lets range filters like noOfParticipants=gt=3 scan an index range instead of all activities
+CREATE INDEX activity_no_of_participants_idx ON activity(no_of_participants);
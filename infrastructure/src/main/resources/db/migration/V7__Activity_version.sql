@@ -0,0 +1,2 @@
+-- Version of an activity for optimistic locking, exposed as its entity tag
+ALTER TABLE activity ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
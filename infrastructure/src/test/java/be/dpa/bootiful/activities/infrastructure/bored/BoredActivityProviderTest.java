@@ -0,0 +1,155 @@
+package be.dpa.bootiful.activities.infrastructure.bored;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityImportRepository;
+import be.dpa.bootiful.activities.domain.spi.ActivityImportResult;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.infrastructure.bored.mapper.IBoredActivityRecordMapper;
+import be.dpa.bootiful.activities.infrastructure.bored.mapper.IBoredActivityRecordMapperImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoredActivityProviderTest {
+
+    private static final int FETCH_AMOUNT = 30;
+
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxObservedInFlight = new AtomicInteger();
+
+    private final List<ActivityRecord> imported = new CopyOnWriteArrayList<>();
+
+    private final List<Integer> importChunkSizes = new CopyOnWriteArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+
+    private ActivityImportRepository activityImportRepository;
+
+    private BoredActivityProvider boredActivityProvider;
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int request = requests.incrementAndGet();
+        maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(50);
+            // Every tenth request fails, the provider should skip it and carry on
+            int status = request % 10 == 0 ? 500 : 200;
+            byte[] body = String.format("{\"activity\":\"Activity %d\",\"type\":\"busywork\",\"participants\":1,"
+                    + "\"key\":\"%d\",\"link\":\"\"}", request, request).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Metrics.addRegistry(meterRegistry);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/activity", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        activityImportRepository = new ActivityImportRepository() {
+            @Override
+            public void importActivity(ActivityRecord activityRecord) {
+                importActivities(List.of(activityRecord));
+            }
+
+            @Override
+            public ActivityImportResult importActivities(Collection<ActivityRecord> activityRecords) {
+                imported.addAll(activityRecords);
+                importChunkSizes.add(activityRecords.size());
+                return new ActivityImportResult(activityRecords.size(), activityRecords.size(), 0, 0);
+            }
+        };
+        boredActivityProvider = newBoredActivityProvider(new IBoredActivityRecordMapperImpl());
+    }
+
+    private BoredActivityProvider newBoredActivityProvider(IBoredActivityRecordMapper boredActivityMapper) {
+        BoredActivityProvider boredActivityProvider = new BoredActivityProvider(new RestTemplate(),
+                boredActivityMapper, activityImportRepository);
+        ReflectionTestUtils.setField(boredActivityProvider, "url",
+                String.format("http://localhost:%d/api/activity", server.getAddress().getPort()));
+        ReflectionTestUtils.setField(boredActivityProvider, "fetchAmount", FETCH_AMOUNT);
+        ReflectionTestUtils.setField(boredActivityProvider, "maxInFlight", MAX_IN_FLIGHT);
+        ReflectionTestUtils.setField(boredActivityProvider, "queueCapacity", 2);
+        ReflectionTestUtils.setField(boredActivityProvider, "importChunkSize", 5);
+        return boredActivityProvider;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    private int countFetched(String outcome) {
+        return (int) meterRegistry.get(BoredActivityProvider.FETCHED_COUNTER).tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    public void testFetch() {
+        boredActivityProvider.fetch();
+        assertEquals(FETCH_AMOUNT, requests.get());
+        assertEquals(FETCH_AMOUNT - FETCH_AMOUNT / 10, imported.size());
+        assertTrue(importChunkSizes.stream().allMatch(size -> size <= 5), "Imported chunks of " + importChunkSizes);
+        assertTrue(maxObservedInFlight.get() > 1, "The activities were not fetched concurrently");
+        assertTrue(maxObservedInFlight.get() <= MAX_IN_FLIGHT,
+                "Fetched " + maxObservedInFlight.get() + " activities at once");
+        assertEquals(FETCH_AMOUNT - FETCH_AMOUNT / 10, countFetched("success"));
+        assertEquals(FETCH_AMOUNT / 10, countFetched("failure"));
+        assertEquals(imported.size(), (int) meterRegistry.get(BoredActivityProvider.IMPORTED_COUNTER)
+                .tag("outcome", "imported").counter().count());
+    }
+
+    @Test
+    public void testFetchWithError() {
+        // An error is no runtime exception, the fetch has to deliver its result anyway
+        BoredActivityProvider failingProvider = newBoredActivityProvider(new IBoredActivityRecordMapperImpl() {
+            @Override
+            public ActivityRecord toActivityRecord(BoredActivityRecord boredActivity, String alternateKey) {
+                if ("5".equals(boredActivity.getKey())) {
+                    throw new StackOverflowError();
+                }
+                return super.toActivityRecord(boredActivity, alternateKey);
+            }
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(30), failingProvider::fetch);
+        assertEquals(FETCH_AMOUNT, requests.get());
+        assertEquals(FETCH_AMOUNT - FETCH_AMOUNT / 10 - 1, imported.size());
+    }
+}
@@ -0,0 +1,35 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import java.util.UUID;
+
+/**
+ * A generated dataset of activities and the number of generated participants, see
+ * {@link ActivityDatasetGenerator}.
+ *
+ * @author denis
+ */
+public record ActivityDataset(long seed,
+                              int activities,
+                              long participants) {
+
+    /**
+     * Gets the alternate key of the nth activity of a dataset without looking it up.
+     *
+     * @param seed  the seed of the dataset
+     * @param index the index of the activity, starting at 0
+     * @return the alternate key
+     */
+    public static String toAlternateKey(long seed, long index) {
+        return new UUID(seed, index).toString();
+    }
+
+    /**
+     * Gets the alternate key of the nth activity of this dataset without looking it up.
+     *
+     * @param index the index of the activity, starting at 0
+     * @return the alternate key
+     */
+    public String alternateKey(int index) {
+        return toAlternateKey(seed, index);
+    }
+}
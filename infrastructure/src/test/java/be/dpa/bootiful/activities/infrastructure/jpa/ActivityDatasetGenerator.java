@@ -0,0 +1,140 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bulk loads synthetic activities and their participants into the Flyway managed schema, up to millions of them for
+ * benchmarks and soak tests. The same seed always generates the same dataset. The rows are written in JDBC batches
+ * with ids above the ones handed out so far, the id sequences are moved past them afterwards. They bypass the
+ * activity statistics counters, which count the stored activities at the startup. A dataset generated into a running
+ * application is only counted once the counters are rebuilt.
+ *
+ * @author denis
+ */
+@RequiredArgsConstructor
+public class ActivityDatasetGenerator {
+
+    /**
+     * The types of the generated activities, they are equally likely.
+     */
+    public static final List<String> TYPES = List.of("education", "recreational", "social", "diy", "charity",
+            "cooking", "relaxation", "music", "busywork");
+
+    private static final String[] VERBS = {"Learn", "Organize", "Go", "Bake", "Paint", "Write", "Watch", "Build",
+        "Plan", "Practice"};
+
+    private static final String[] NOUNS = {"a picnic", "a new recipe", "a bird house", "a movie marathon",
+        "a charity run", "a letter", "a puzzle", "a song", "a board game night", "a garden"};
+
+    private static final String[] FIRST_NAMES = {"Tom", "Anna", "Lena", "Mats", "Jonas", "Sofia", "Noah", "Emma",
+        "Luca", "Mila"};
+
+    private static final String[] LAST_NAMES = {"Bola", "Peeters", "Janssens", "Maes", "Jacobs", "Mertens",
+        "Willems", "Claes", "Goossens", "Wouters"};
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final List<String> TABLES = List.of("activity", "participant", "activity_participant");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Draws the number of participants of an activity uniformly between a minimum and a maximum.
+     *
+     * @param min the minimum number of participants
+     * @param max the maximum number of participants
+     * @return the participant distribution
+     */
+    public static ToIntFunction<Random> uniform(int min, int max) {
+        return random -> min + random.nextInt(max - min + 1);
+    }
+
+    private long nextId(String table) {
+        // Every sequence value is the upper bound of a block no one else hands out, everything above is free
+        Long sequenceValue = jdbcTemplate.queryForObject(String.format("SELECT NEXT VALUE FOR %s_seq", table),
+                Long.class);
+        Long maxId = jdbcTemplate.queryForObject(String.format("SELECT COALESCE(MAX(id), 0) FROM %s", table),
+                Long.class);
+        return Math.max(sequenceValue, maxId) + 1;
+    }
+
+    private void restartSequences() {
+        // The same way the pooled id sequences have been introduced, the next block starts after the existing rows
+        for (String table : TABLES) {
+            jdbcTemplate.execute(String.format("ALTER SEQUENCE %1$s_seq RESTART WITH"
+                    + " (SELECT COALESCE(MAX(id), 0) + 50 FROM %1$s)", table));
+        }
+    }
+
+    private void insert(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    private void flush(List<Object[]> activities, List<Object[]> participants, List<Object[]> assignments) {
+        insert("INSERT INTO activity (id, alternate_key, action, type, no_of_participants, details)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", activities);
+        insert("INSERT INTO participant (id, alternate_key, first_name, last_name) VALUES (?, ?, ?, ?)",
+                participants);
+        insert("INSERT INTO activity_participant (id, activity_id, participant_id, first_name_key, last_name_key)"
+                + " VALUES (?, ?, ?, ?, ?)", assignments);
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Generates the activities, each of them with as many participants as it says. A seed can be generated only
+     * once per database, its alternate keys would be taken otherwise.
+     *
+     * @param seed             the seed of the dataset
+     * @param activityCount    the number of activities to generate
+     * @param noOfParticipants draws the number of participants of an activity
+     * @param withParticipants whether to generate the participants too or only their number
+     * @return the generated dataset
+     */
+    public ActivityDataset generate(long seed, int activityCount, ToIntFunction<Random> noOfParticipants,
+                                    boolean withParticipants) {
+        Random random = new Random(seed);
+        long activityId = nextId("activity");
+        long participantId = nextId("participant");
+        long assignmentId = nextId("activity_participant");
+        long participantCount = 0L;
+        List<Object[]> activities = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> participants = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        for (int i = 0; i < activityCount; ++i, ++activityId) {
+            int activityParticipants = noOfParticipants.applyAsInt(random);
+            String action = String.format("%s %s", pick(random, VERBS), pick(random, NOUNS));
+            String details = random.nextInt(3) == 0 ? "Generated activity " + i : null;
+            activities.add(new Object[] {activityId, ActivityDataset.toAlternateKey(seed, i), action,
+                TYPES.get(random.nextInt(TYPES.size())), activityParticipants, details});
+            for (int j = 1; withParticipants && j <= activityParticipants; ++j, ++participantId, ++assignmentId) {
+                String firstName = pick(random, FIRST_NAMES);
+                // Numbered, the names of the participants of an activity have to be unique
+                String lastName = String.format("%s %d", pick(random, LAST_NAMES), j);
+                participants.add(new Object[] {participantId, new UUID(seed, participantCount++).toString(),
+                    firstName, lastName});
+                assignments.add(new Object[] {assignmentId, activityId, participantId,
+                    ActivityParticipantRepository.normalizeName(firstName),
+                    ActivityParticipantRepository.normalizeName(lastName)});
+            }
+            if (activities.size() == BATCH_SIZE) {
+                flush(activities, participants, assignments);
+            }
+        }
+        flush(activities, participants, assignments);
+        restartSequences();
+        return new ActivityDataset(seed, activityCount, participantCount);
+    }
+}
@@ -0,0 +1,90 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivitySaveResult;
+import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ActivityDatasetGeneratorTest {
+
+    private static final int ACTIVITY_COUNT = 250;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private ActivityImportRepository activityImportRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static String toKeyPattern(long seed) {
+        // The alternate keys of a dataset share the seed as their most significant bits
+        return ActivityDataset.toAlternateKey(seed, 0L).substring(0, 19) + "%";
+    }
+
+    private long countParticipants(long seed) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM activity_participant ap"
+                + " JOIN activity a ON a.id = ap.activity_id WHERE a.alternate_key LIKE ?", Long.class,
+                toKeyPattern(seed));
+    }
+
+    private List<Map<String, Object>> getActivities(long seed) {
+        return jdbcTemplate.queryForList("SELECT alternate_key, action, type, no_of_participants, details"
+                + " FROM activity WHERE alternate_key LIKE ? ORDER BY alternate_key", toKeyPattern(seed));
+    }
+
+    @Test
+    public void testGenerate() throws DuplicateParticipantException {
+        long seed = 7L;
+        ActivityDataset dataset = new ActivityDatasetGenerator(jdbcTemplate)
+                .generate(seed, ACTIVITY_COUNT, ActivityDatasetGenerator.uniform(0, 4), true);
+        assertEquals(ACTIVITY_COUNT, dataset.activities());
+        assertEquals(dataset.participants(), countParticipants(seed));
+
+        Optional<ActivityRecord> lastActivity = activityRepository.getBy(dataset.alternateKey(ACTIVITY_COUNT - 1));
+        assertTrue(lastActivity.isPresent());
+        assertTrue(ActivityDatasetGenerator.TYPES.contains(lastActivity.get().type()));
+        assertEquals(lastActivity.get().noOfParticipants(), activityRepository
+                .getParticipantsBy(dataset.alternateKey(ACTIVITY_COUNT - 1), 0, 10).getTotalElements());
+
+        // The sequences continue after the generated rows, both for statements and for Hibernate
+        ActivitySaveResult saved = activityRepository.save(new ActivityRecord(UUID.randomUUID().toString(), null,
+                "Go get your bike", "outside", 2, null, 0L));
+        assertTrue(saved.created());
+        activityImportRepository.importActivities(List.of(new ActivityRecord(UUID.randomUUID().toString(), null,
+                "Import after the dataset", "busywork", 3, null, 0L)));
+        assertTrue(activityRepository.newParticipant(dataset.alternateKey(0),
+                new ParticipantRecord(null, "Tom", "Bola")).isPresent());
+    }
+
+    @Test
+    public void testGenerateIsDeterministic() {
+        long seed = 11L;
+        ActivityDatasetGenerator generator = new ActivityDatasetGenerator(jdbcTemplate);
+        ActivityDataset dataset =
+                generator.generate(seed, ACTIVITY_COUNT, ActivityDatasetGenerator.uniform(1, 3), false);
+        assertEquals(0L, dataset.participants());
+        List<Map<String, Object>> activities = getActivities(seed);
+        assertEquals(ACTIVITY_COUNT, activities.size());
+
+        jdbcTemplate.update("DELETE FROM activity WHERE alternate_key LIKE ?", toKeyPattern(seed));
+        generator.generate(seed, ACTIVITY_COUNT, ActivityDatasetGenerator.uniform(1, 3), false);
+        assertEquals(activities, getActivities(seed));
+    }
+}
@@ -0,0 +1,79 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityImportResult;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.infrastructure.jpa.StatementCounter.StatementCounts;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ActivityImportRepositoryTest {
+
+    private static final int NO_OF_PARTICIPANTS = 40;
+
+    @Autowired
+    private ActivityImportRepository activityImportRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Test
+    public void testImportActivityBatchesInserts() {
+        String activityAk = UUID.randomUUID().toString();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        statementCounter.clear();
+        activityImportRepository.importActivity(new ActivityRecord(activityAk, UUID.randomUUID().toString(),
+                "Import some participants", "busywork", NO_OF_PARTICIPANTS, null, 0L));
+        assertEquals(1L + 2L * NO_OF_PARTICIPANTS, statistics.getEntityInsertCount());
+        // One select for the known external keys and a batched insert per table rather than a statement per row
+        assertEquals(new StatementCounts(1L, 3L, 0L, 0L), statementCounter.getCounts());
+        assertEquals(NO_OF_PARTICIPANTS, activityRepository.getParticipantsBy(activityAk, 0, 1).getTotalElements());
+    }
+
+    @Test
+    public void testImportActivitiesSkipsKnownExternalKeys() {
+        String knownExternalKey = UUID.randomUUID().toString();
+        activityImportRepository.importActivity(new ActivityRecord(UUID.randomUUID().toString(), knownExternalKey,
+                "Known activity", "busywork", 1, null, 0L));
+        String repeatedExternalKey = UUID.randomUUID().toString();
+        List<ActivityRecord> activityRecords = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            activityRecords.add(new ActivityRecord(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                    "Activity " + i, "busywork", 2, null, 0L));
+        }
+        activityRecords.add(new ActivityRecord(UUID.randomUUID().toString(), knownExternalKey,
+                "Known activity", "busywork", 1, null, 0L));
+        activityRecords.add(new ActivityRecord(UUID.randomUUID().toString(), repeatedExternalKey,
+                "Repeated activity", "busywork", 1, null, 0L));
+        activityRecords.add(new ActivityRecord(UUID.randomUUID().toString(), repeatedExternalKey,
+                "Repeated activity", "busywork", 1, null, 0L));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        ActivityImportResult result = activityImportRepository.importActivities(activityRecords);
+        assertEquals(new ActivityImportResult(123, 121, 2, 241), result);
+        // The known external keys are resolved by a single query
+        assertEquals(1L, statistics.getQueryExecutionCount());
+        assertEquals(121L + 2L * 241L, statistics.getEntityInsertCount());
+    }
+}
@@ -0,0 +1,382 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityCountRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivityDeleteResult;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import be.dpa.bootiful.activities.domain.spi.ActivitySaveResult;
+import be.dpa.bootiful.activities.domain.spi.ParticipantRecord;
+import be.dpa.bootiful.activities.domain.spi.ParticipantSaveResult;
+import be.dpa.bootiful.activities.domain.spi.exception.DuplicateParticipantException;
+import be.dpa.bootiful.activities.infrastructure.jpa.StatementCounter.StatementCounts;
+import be.dpa.bootiful.activities.infrastructure.jpa.entities.ParticipantEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ActivityRepositoryTest {
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ParticipantEntityRepository participantEntityRepository;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private String activityAk;
+
+    @BeforeEach
+    public void setUp() {
+        activityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your bike", "outside", 2, null, 0L));
+    }
+
+    @Test
+    public void testNewParticipant() throws DuplicateParticipantException {
+        Optional<ParticipantSaveResult> saved =
+                activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola"));
+        assertTrue(saved.isPresent());
+        assertEquals(activityRepository.getBy(activityAk).get(), saved.get().activity());
+        ParticipantRecord participant = saved.get().participant();
+        assertEquals(Optional.of(participant),
+                activityRepository.getParticipantBy(activityAk, participant.alternateKey()));
+    }
+
+    @Test
+    public void testNewParticipantActivityNotFound() throws DuplicateParticipantException {
+        Optional<ParticipantSaveResult> saved = activityRepository.newParticipant(UUID.randomUUID().toString(),
+                new ParticipantRecord(null, "Tom", "Bola"));
+        assertFalse(saved.isPresent());
+    }
+
+    @Test
+    public void testNewDuplicateParticipant() throws DuplicateParticipantException {
+        activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola"));
+        assertThrows(DuplicateParticipantException.class, () ->
+                activityRepository.newParticipant(activityAk, new ParticipantRecord(null, " tom", "BOLA ")));
+        assertEquals(1L, activityRepository.getParticipantsBy(activityAk, 0, 10).getTotalElements());
+    }
+
+    @Test
+    public void testNewParticipantNameKeys() throws DuplicateParticipantException {
+        activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola"));
+        activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom\t", " Bola\n"));
+        assertEquals(2L, activityRepository.getParticipantsBy(activityAk, 0, 10).getTotalElements());
+        // The keys are normalized the same way the migration filled them for the already existing participants
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM activity_participant ap"
+                + " JOIN participant p ON p.id = ap.participant_id"
+                + " WHERE ap.first_name_key <> LOWER(TRIM(p.first_name))"
+                + " OR ap.last_name_key <> LOWER(TRIM(p.last_name))", Integer.class));
+    }
+
+    @Test
+    public void testGetAllStatementCount() {
+        String otherActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(otherActivityAk, null, "Go get your car", "outside", 3, null, 0L));
+
+        statementCounter.clear();
+        Page<ActivityRecord> firstPage = activityRepository.getAll(Optional.empty(), 0, 1);
+        assertEquals(1, firstPage.getNumberOfElements());
+        // One select for the content, one for the count
+        assertEquals(new StatementCounts(2L, 0L, 0L, 0L), statementCounter.getCounts());
+        activityRepository.delete(otherActivityAk);
+    }
+
+    @Test
+    public void testGetParticipantsStatementCount() throws DuplicateParticipantException {
+        for (int i = 0; i < 12; i++) {
+            activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola " + i));
+        }
+
+        statementCounter.clear();
+        Page<ParticipantRecord> firstPage = activityRepository.getParticipantsBy(activityAk, 0, 5);
+        assertEquals(5, firstPage.getNumberOfElements());
+        assertEquals(12L, firstPage.getTotalElements());
+        assertEquals("Bola 0", firstPage.getContent().get(0).lastName());
+        // One select for the content, one for the count
+        assertEquals(new StatementCounts(2L, 0L, 0L, 0L), statementCounter.getCounts());
+
+        statementCounter.clear();
+        Page<ParticipantRecord> lastPage = activityRepository.getParticipantsBy(activityAk, 2, 5);
+        assertEquals(2, lastPage.getNumberOfElements());
+        // The total is derived from the last page, no count is needed
+        assertEquals(new StatementCounts(1L, 0L, 0L, 0L), statementCounter.getCounts());
+    }
+
+    @Test
+    public void testNewParticipantStatementCount() throws DuplicateParticipantException {
+        statementCounter.clear();
+        assertTrue(activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola"))
+                .isPresent());
+        // One select for the activity, one insert for the participant and one for its assignment
+        assertEquals(new StatementCounts(1L, 2L, 0L, 0L), statementCounter.getCounts());
+    }
+
+    @Test
+    public void testSaveStatementCount() {
+        statementCounter.clear();
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your car", "outside", 2, null, 0L));
+        // The update returns the previous activity, it is not looked up beforehand
+        assertEquals(new StatementCounts(0L, 0L, 1L, 0L), statementCounter.getCounts());
+
+        String newActivityAk = UUID.randomUUID().toString();
+        statementCounter.clear();
+        activityRepository.save(new ActivityRecord(newActivityAk, null, "Go get your bike", "outside", 2, null, 0L));
+        // The update finds nothing, the insert returns the created activity
+        assertEquals(new StatementCounts(0L, 1L, 1L, 0L), statementCounter.getCounts());
+        activityRepository.delete(newActivityAk);
+    }
+
+    @Test
+    public void testDeleteStatementCount() throws DuplicateParticipantException {
+        for (int i = 0; i < 20; i++) {
+            activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola " + i));
+        }
+
+        statementCounter.clear();
+        assertEquals(Optional.of(new ActivityDeleteResult(
+                new ActivityRecord(activityAk, null, "Go get your bike", "outside", 2, null, 0L), 20L)),
+                activityRepository.delete(activityAk));
+        // One bulk delete for the participants, one for the activity, the assignments cascade
+        assertEquals(new StatementCounts(0L, 0L, 0L, 2L), statementCounter.getCounts());
+        assertFalse(activityRepository.getBy(activityAk).isPresent());
+        assertEquals(0L, activityRepository.getParticipantsBy(activityAk, 0, 10).getTotalElements());
+        assertFalse(activityRepository.delete(activityAk).isPresent());
+    }
+
+    @Test
+    public void testSaveCreatesOrUpdates() throws DuplicateParticipantException {
+        activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola"));
+        ActivitySaveResult updated = activityRepository.save(
+                new ActivityRecord(activityAk, "bike", "Go get your car", "outside", 3, "Fuel up", 0L));
+        assertFalse(updated.created());
+        assertEquals(new ActivityRecord(activityAk, "bike", "Go get your car", "outside", 3, "Fuel up", 1L),
+                updated.activity());
+        assertEquals(new ActivityRecord(activityAk, null, "Go get your bike", "outside", 2, null, 0L),
+                updated.previous());
+        assertEquals(1L, updated.noOfEnrolled());
+        assertEquals(updated.activity(), activityRepository.getBy(activityAk).get());
+
+        String newActivityAk = UUID.randomUUID().toString();
+        ActivitySaveResult created = activityRepository.save(
+                new ActivityRecord(newActivityAk, null, "Go get your bike", "outside", 2, null, 0L));
+        assertTrue(created.created());
+        assertEquals(created.activity(), activityRepository.getBy(newActivityAk).get());
+        activityRepository.delete(newActivityAk);
+    }
+
+    @Test
+    public void testSaveTakesConsecutiveIds() {
+        String newActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(newActivityAk, null, "Go get your car", "outside", 2, null, 0L));
+        // The inserts share the pooled block of ids, they do not skip a whole block each
+        String selectId = "SELECT id FROM activity WHERE alternate_key = ?";
+        assertEquals(jdbcTemplate.queryForObject(selectId, Long.class, activityAk) + 1L,
+                jdbcTemplate.queryForObject(selectId, Long.class, newActivityAk));
+        activityRepository.delete(newActivityAk);
+    }
+
+    @Test
+    public void testCountActivities() throws DuplicateParticipantException {
+        String type = UUID.randomUUID().toString().substring(0, 8);
+        assertFalse(activityRepository.countActivities().stream().anyMatch(count -> type.equals(count.type())));
+        List<String> activityAks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String countedActivityAk = UUID.randomUUID().toString();
+            activityAks.add(countedActivityAk);
+            activityRepository.save(new ActivityRecord(countedActivityAk, null, "Count me", type, i % 2, null, 0L));
+        }
+        activityRepository.newParticipant(activityAks.get(1), new ParticipantRecord(null, "Tom", "Bola"));
+        List<ActivityCountRecord> counts = activityRepository.countActivities().stream()
+                .filter(count -> type.equals(count.type())).toList();
+        assertEquals(2, counts.size());
+        assertTrue(counts.contains(new ActivityCountRecord(type, 0, 2L, 0L)));
+        assertTrue(counts.contains(new ActivityCountRecord(type, 1, 1L, 1L)));
+        activityAks.forEach(activityRepository::delete);
+    }
+
+    @Test
+    public void testUpdateExpectedVersion() {
+        ActivityRecord activity = new ActivityRecord(activityAk, null, "Go get your car", "outside", 2, null, 0L);
+        Optional<ActivityRecord> updated = activityRepository.update(activity, 0L).map(ActivitySaveResult::activity);
+        assertEquals(1L, updated.map(ActivityRecord::version).get());
+        // Another update based on the same version has to lose
+        assertFalse(activityRepository.update(activity, 0L).isPresent());
+        assertFalse(activityRepository.update(
+                new ActivityRecord(UUID.randomUUID().toString(), null, "Go get your car", "outside", 2, null, 0L),
+                0L).isPresent());
+        assertEquals(updated, activityRepository.getBy(activityAk));
+    }
+
+    @Test
+    public void testSearchByTrigrams() {
+        String word = "Party" + UUID.randomUUID().toString().replace("-", "");
+        activityRepository.save(
+                new ActivityRecord(activityAk, null, "Throw a " + word, "social", 2, "Bring " + word, 0L));
+
+        assertEquals(1L, activityRepository.getAll(Optional.of("action==*" + word + "*"), 0, 5).getTotalElements());
+        assertEquals(1L, activityRepository.getAll(Optional.of("details==Bring*" + word), 0, 5).getTotalElements());
+        // The index only narrows the candidates down, the match itself stays case sensitive
+        assertEquals(0L, activityRepository.getAll(Optional.of("action==*" + word.toLowerCase() + "*"), 0, 5)
+                .getTotalElements());
+
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your bike", "outside", 2, null, 0L));
+        assertEquals(0L, activityRepository.getAll(Optional.of("action==*" + word + "*"), 0, 5).getTotalElements());
+        assertEquals(0L, activityRepository.getAll(Optional.of("details==*" + word + "*"), 0, 5).getTotalElements());
+
+        activityRepository.delete(activityAk);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM activity_trigram t"
+                + " WHERE NOT EXISTS (SELECT 1 FROM activity a WHERE a.id = t.activity_id)", Integer.class));
+    }
+
+    @Test
+    public void testGetSlice() {
+        String type = UUID.randomUUID().toString().substring(0, 8);
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your bike", type, 2, null, 0L));
+        String otherActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(otherActivityAk, null, "Go get your car", type, 3, null, 0L));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        Slice<ActivityRecord> firstSlice = activityRepository.getSlice(Optional.of("type==" + type), 0, 1);
+        // Only the query for one more activity than asked for, no count
+        assertEquals(1L, statistics.getPrepareStatementCount());
+        assertEquals(1, firstSlice.getNumberOfElements());
+        assertTrue(firstSlice.hasNext());
+        Slice<ActivityRecord> secondSlice = activityRepository.getSlice(Optional.of("type==" + type), 1, 1);
+        assertEquals(1, secondSlice.getNumberOfElements());
+        assertFalse(secondSlice.hasNext());
+        activityRepository.delete(otherActivityAk);
+    }
+
+    @Test
+    public void testGetParticipantSlice() throws DuplicateParticipantException {
+        for (int i = 0; i < 3; i++) {
+            activityRepository.newParticipant(activityAk, new ParticipantRecord(null, "Tom", "Bola " + i));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        Slice<ParticipantRecord> lastSlice = activityRepository.getParticipantSliceBy(activityAk, 1, 2);
+        assertEquals(1L, statistics.getPrepareStatementCount());
+        assertEquals("Bola 2", lastSlice.getContent().get(0).lastName());
+        assertFalse(lastSlice.hasNext());
+        assertTrue(lastSlice.hasPrevious());
+    }
+
+    @Test
+    public void testExportAll() {
+        String type = UUID.randomUUID().toString().substring(0, 8);
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your bike", type, 2, null, 0L));
+        String otherActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(otherActivityAk, null, "Go get your car", type, 3, null, 0L));
+
+        List<ActivityRecord> exported = new ArrayList<>();
+        activityRepository.exportAll(Optional.of("type==" + type), exported::add);
+        assertEquals(List.of(activityAk, otherActivityAk),
+                exported.stream().map(ActivityRecord::alternateKey).toList());
+        exported.clear();
+        activityRepository.exportAll(Optional.of("type==" + type + ";noOfParticipants=gt=2"), exported::add);
+        assertEquals(List.of(otherActivityAk), exported.stream().map(ActivityRecord::alternateKey).toList());
+        activityRepository.delete(otherActivityAk);
+    }
+
+    @Test
+    public void testSearchNoOfParticipantsNumerically() {
+        String type = UUID.randomUUID().toString().substring(0, 8);
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your bike", type, 10, null, 0L));
+        // Compared as text, 10 would be less than 9
+        assertEquals(1L, activityRepository.getAll(Optional.of("type==" + type + ";noOfParticipants=gt=9"), 0, 5)
+                .getTotalElements());
+        assertEquals(0L, activityRepository.getAll(Optional.of("type==" + type + ";noOfParticipants=lt=9"), 0, 5)
+                .getTotalElements());
+    }
+
+    @Test
+    public void testGetByFromSecondLevelCache() {
+        activityRepository.getBy(activityAk);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        assertEquals("Go get your bike", activityRepository.getBy(activityAk).map(ActivityRecord::action).get());
+        // The natural id cache resolves the id, the entity cache the activity
+        assertEquals(0L, statistics.getPrepareStatementCount());
+        assertEquals(1L, statistics.getNaturalIdCacheHitCount());
+
+        activityRepository.save(new ActivityRecord(activityAk, null, "Go get your car", "outside", 2, null, 0L));
+        assertEquals("Go get your car", activityRepository.getBy(activityAk).map(ActivityRecord::action).get());
+
+        activityRepository.delete(activityAk);
+        assertFalse(activityRepository.getBy(activityAk).isPresent());
+    }
+
+    @Test
+    public void testDeleteKeepsOtherNaturalIds() {
+        String otherActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(otherActivityAk, null, "Stay home", "chill", 1, null, 0L));
+        activityRepository.getBy(otherActivityAk);
+        activityRepository.getBy(activityAk);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        activityRepository.delete(activityAk);
+        statistics.clear();
+        assertTrue(activityRepository.getBy(otherActivityAk).isPresent());
+        // Only the natural id of the deleted activity is evicted
+        assertEquals(0L, statistics.getPrepareStatementCount());
+        assertEquals(1L, statistics.getNaturalIdCacheHitCount());
+        assertFalse(activityRepository.getBy(activityAk).isPresent());
+        assertEquals(1L, statistics.getNaturalIdCacheMissCount());
+        activityRepository.delete(otherActivityAk);
+    }
+
+    @Test
+    public void testDeleteKeepsOtherParticipantsCached() throws DuplicateParticipantException {
+        String otherActivityAk = UUID.randomUUID().toString();
+        activityRepository.save(new ActivityRecord(otherActivityAk, null, "Stay home", "chill", 1, null, 0L));
+        ParticipantRecord other = activityRepository.newParticipant(otherActivityAk,
+                new ParticipantRecord(null, "Tom", "Bola")).get().participant();
+        ParticipantRecord deleted = activityRepository.newParticipant(activityAk,
+                new ParticipantRecord(null, "Tom", "Bola")).get().participant();
+        String selectId = "SELECT id FROM participant WHERE alternate_key = ?";
+        Long otherId = jdbcTemplate.queryForObject(selectId, Long.class, other.alternateKey());
+        Long deletedId = jdbcTemplate.queryForObject(selectId, Long.class, deleted.alternateKey());
+        participantEntityRepository.findById(otherId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        activityRepository.delete(activityAk);
+        assertFalse(entityManagerFactory.getCache().contains(ParticipantEntity.class, deletedId));
+        statistics.clear();
+        assertTrue(participantEntityRepository.findById(otherId).isPresent());
+        // Only the participants of the deleted activity are evicted, the others are still read from the cache
+        assertEquals(0L, statistics.getPrepareStatementCount());
+        assertEquals(1L, statistics.getSecondLevelCacheHitCount());
+        activityRepository.delete(otherActivityAk);
+    }
+}
@@ -1,9 +1,12 @@
 package be.dpa.bootiful.activities.infrastructure.jpa;
 
+import be.dpa.bootiful.activities.domain.search.SearchPlanCache;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({SearchPlanCache.class, StatementCounter.class})
 class JpaTestApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,139 @@
+package be.dpa.bootiful.activities.infrastructure.jpa;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements sent through the data source by their kind, Hibernate's as well as the JDBC template's ones.
+ * A JDBC batch counts as one statement. A select from a data change delta table counts as the insert, update or
+ * delete it wraps. Id sequence calls are not counted, whether one is needed depends on the pooled block left over
+ * by the previous tests.
+ */
+class StatementCounter implements BeanPostProcessor {
+
+    private static final Pattern SEQUENCE_CALL = Pattern.compile("^(SELECT|CALL|VALUES)\\s+NEXT VALUE FOR\\s");
+
+    private static final Pattern DELTA_TABLE =
+            Pattern.compile("\\b(?:OLD|NEW|FINAL)\\s+TABLE\\s*\\(\\s*(INSERT|UPDATE|DELETE)\\b");
+
+    private final Map<Kind, LongAdder> counts = new EnumMap<>(Kind.class);
+
+    /**
+     * The counted kinds of statements.
+     */
+    enum Kind { SELECT, INSERT, UPDATE, DELETE }
+
+    /**
+     * The number of statements of every kind.
+     */
+    record StatementCounts(long selects, long inserts, long updates, long deletes) {}
+
+    StatementCounter() {
+        for (Kind kind : Kind.values()) {
+            counts.put(kind, new LongAdder());
+        }
+    }
+
+    void clear() {
+        counts.values().forEach(LongAdder::reset);
+    }
+
+    StatementCounts getCounts() {
+        return new StatementCounts(counts.get(Kind.SELECT).sum(), counts.get(Kind.INSERT).sum(),
+                counts.get(Kind.UPDATE).sum(), counts.get(Kind.DELETE).sum());
+    }
+
+    private void count(String sql) {
+        String statement = sql.strip().toUpperCase(Locale.ROOT);
+        if (SEQUENCE_CALL.matcher(statement).find()) {
+            return;
+        }
+        Matcher deltaTable = DELTA_TABLE.matcher(statement);
+        String keyword = deltaTable.find() ? deltaTable.group(1) : statement.split("[\\s(]", 2)[0];
+        for (Kind kind : Kind.values()) {
+            if (kind.name().equals(keyword)) {
+                counts.get(kind).increment();
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T extends Statement> T countExecutions(Class<T> type, T statement, String preparedSql) {
+        List<String> batch = new ArrayList<>();
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    String sql = args != null && args.length > 0 && args[0] instanceof String arg ? arg : preparedSql;
+                    if ("addBatch".equals(name) && sql != null && preparedSql == null) {
+                        batch.add(sql);
+                    } else if (name.startsWith("execute") && name.contains("Batch")) {
+                        if (preparedSql != null) {
+                            count(preparedSql);
+                        }
+                        batch.forEach(this::count);
+                        batch.clear();
+                    } else if (name.startsWith("execute") && sql != null) {
+                        count(sql);
+                    }
+                    return invoke(statement, method, args);
+                }));
+    }
+
+    private Connection countStatements(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return switch (method.getName()) {
+                        case "createStatement" -> countExecutions(Statement.class, (Statement) result, null);
+                        case "prepareStatement" ->
+                            countExecutions(PreparedStatement.class, (PreparedStatement) result, (String) args[0]);
+                        case "prepareCall" ->
+                            countExecutions(CallableStatement.class, (CallableStatement) result, (String) args[0]);
+                        default -> result;
+                    };
+                });
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return countStatements(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return countStatements(super.getConnection(username, password));
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package be.dpa.bootiful.activities.infrastructure.metrics;
+
+import be.dpa.bootiful.activities.domain.spi.ActivityImportRepository;
+import be.dpa.bootiful.activities.domain.spi.ActivityImportResult;
+import be.dpa.bootiful.activities.domain.spi.ActivityRecord;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RepositoryMetricsPostProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RepositoryMetricsPostProcessor postProcessor = new RepositoryMetricsPostProcessor();
+
+    static class FailingImportRepository implements ActivityImportRepository {
+
+        @Override
+        public void importActivity(ActivityRecord activityRecord) {
+        }
+
+        @Override
+        public ActivityImportResult importActivities(Collection<ActivityRecord> activityRecords) {
+            throw new IllegalStateException("Failed to import");
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    private Timer getTimer(String method, String exception) {
+        return meterRegistry.get(RepositoryMetricsPostProcessor.REPOSITORY_TIMER)
+                .tag("repository", ActivityImportRepository.class.getSimpleName())
+                .tag("method", method)
+                .tag("exception", exception)
+                .timer();
+    }
+
+    @Test
+    public void testTimeSpiMethods() {
+        ActivityImportRepository activityImportRepository = (ActivityImportRepository) postProcessor
+                .postProcessAfterInitialization(new FailingImportRepository(), "activityImportRepository");
+        activityImportRepository.importActivity(null);
+        activityImportRepository.importActivity(null);
+        assertThrows(IllegalStateException.class, () -> activityImportRepository.importActivities(List.of()));
+
+        assertEquals(2L, getTimer("importActivity", "none").count());
+        assertEquals(1L, getTimer("importActivities", "IllegalStateException").count());
+    }
+
+    @Test
+    public void testSkipOtherBeans() {
+        Object bean = new Object();
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "bean"));
+    }
+}